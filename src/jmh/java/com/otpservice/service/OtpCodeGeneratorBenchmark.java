@@ -0,0 +1,72 @@
+package com.otpservice.service;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+/**
+ * Генерация OTP-кодов: OtpCodeGenerator (DRBG на поток, байты блоками) против прежней схемы
+ * (один SecureRandom на все потоки, nextInt(10) на цифру, StringBuilder) при 1-64 потоках.
+ * Длины 4-10 - допустимый диапазон OtpConfigService.updateConfig.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OtpCodeGeneratorBenchmark {
+    private static final SecureRandom SHARED_RANDOM = new SecureRandom();
+    private static final String DIGITS = "0123456789";
+    @Param({"4", "6", "8", "10"})
+    public int length;
+    @Benchmark
+    @Threads(1)
+    public String generator1Thread() {
+        return OtpCodeGenerator.generate(length);
+    }
+    @Benchmark
+    @Threads(4)
+    public String generator4Threads() {
+        return OtpCodeGenerator.generate(length);
+    }
+    @Benchmark
+    @Threads(16)
+    public String generator16Threads() {
+        return OtpCodeGenerator.generate(length);
+    }
+    @Benchmark
+    @Threads(64)
+    public String generator64Threads() {
+        return OtpCodeGenerator.generate(length);
+    }
+    @Benchmark
+    @Threads(1)
+    public String sharedSecureRandom1Thread() {
+        return sharedSecureRandom(length);
+    }
+    @Benchmark
+    @Threads(4)
+    public String sharedSecureRandom4Threads() {
+        return sharedSecureRandom(length);
+    }
+    @Benchmark
+    @Threads(16)
+    public String sharedSecureRandom16Threads() {
+        return sharedSecureRandom(length);
+    }
+    @Benchmark
+    @Threads(64)
+    public String sharedSecureRandom64Threads() {
+        return sharedSecureRandom(length);
+    }
+    private static String sharedSecureRandom(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(DIGITS.charAt(SHARED_RANDOM.nextInt(DIGITS.length())));
+        }
+        return builder.toString();
+    }
+} 
\ No newline at end of file
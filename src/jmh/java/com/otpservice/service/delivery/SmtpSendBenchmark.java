@@ -0,0 +1,70 @@
+package com.otpservice.service.delivery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+/**
+ * Отправка писем на локальный SMTP-сервер (MailHog из docker-compose.yml, порт 1025):
+ * Transport.send с новым соединением на каждое письмо против SmtpTransportPool.send.
+ * Перед запуском: docker compose up -d mailhog; другой сервер задается через -p host=... -p port=...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class SmtpSendBenchmark {
+    @Param("localhost")
+    public String host;
+    @Param("1025")
+    public String port;
+    @Param("4")
+    public int poolSize;
+    private Session session;
+    private SmtpTransportPool transportPool;
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", host);
+        properties.put("mail.smtp.port", port);
+        properties.put("mail.smtp.auth", "false");
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        properties.put("mail.smtp.timeout", "5000");
+        session = Session.getInstance(properties);
+        transportPool = new SmtpTransportPool(session, poolSize, 1000, 30000, 5000);
+    }
+    @TearDown
+    public void tearDown() {
+        transportPool.close();
+    }
+    @Benchmark
+    public void transportSend() throws MessagingException {
+        Transport.send(createMessage());
+    }
+    @Benchmark
+    public void pooledSend() throws MessagingException {
+        transportPool.send(createMessage());
+    }
+    private MimeMessage createMessage() throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("otp@example.com"));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse("user@example.com"));
+        message.setSubject("Your OTP Code");
+        message.setText("Your OTP code is: 123456");
+        message.saveChanges();
+        return message;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.otpservice.util;
+import com.otpservice.config.AppConfig;
+import com.otpservice.model.AuthPrincipal;
+import com.otpservice.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+/**
+ * Накладные расходы аутентификации запроса администратора.
+ * threeParses повторяет прежний путь BaseHandler: validateToken, extractRole и extractUsername,
+ * каждый со своим Jwts.parserBuilder() и полной проверкой подписи. authenticate - один вызов
+ * JwtUtil.authenticate (кэш токенов выключен в application.properties бенчмарков).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthBenchmark {
+    private Key signingKey;
+    private String token;
+    @Setup
+    public void setUp() {
+        signingKey = Keys.hmacShaKeyFor(AppConfig.getJwtSecret().getBytes(StandardCharsets.UTF_8));
+        token = JwtUtil.generateToken(new User(1L, "admin", "password", User.Role.ADMIN, null));
+    }
+    @Benchmark
+    public void threeParses(Blackhole blackhole) {
+        Date expiration = parse().getExpiration();
+        blackhole.consume(expiration.before(new Date()));
+        blackhole.consume(parse().get("role", String.class));
+        blackhole.consume(parse().getSubject());
+    }
+    @Benchmark
+    public Optional<AuthPrincipal> authenticate() {
+        return JwtUtil.authenticate(token);
+    }
+    private Claims parse() {
+        return Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+} 
\ No newline at end of file
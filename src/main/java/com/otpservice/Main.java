@@ -1,9 +1,17 @@
 package com.otpservice;
 import com.otpservice.api.HttpServer;
 import com.otpservice.config.DatabaseConfig;
+import com.otpservice.service.ActiveOtpStore;
+import com.otpservice.service.OtpArchiver;
+import com.otpservice.service.OtpConfigService;
+import com.otpservice.service.OtpConfigWatcher;
 import com.otpservice.service.OtpExpirationScheduler;
+import com.otpservice.service.OtpExpiryTimer;
+import com.otpservice.service.OtpPartitionManager;
 import com.otpservice.service.OtpService;
+import com.otpservice.service.delivery.AsyncDeliveryDispatcher;
 import com.otpservice.service.delivery.OtpDeliveryServiceFactory;
+import com.otpservice.service.delivery.OtpOutboxDispatcher;
 import com.otpservice.util.DatabaseInitializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,15 +28,40 @@ public class Main {
                 logger.error("Failed to initialize database, exiting application");
                 System.exit(1);
             }
+            OtpDeliveryServiceFactory.getInstance().startInitialization();
+            OtpPartitionManager partitionManager = new OtpPartitionManager();
+            partitionManager.start();
+            OtpConfigService otpConfigService = new OtpConfigService();
+            otpConfigService.getConfig();
+            OtpConfigWatcher configWatcher = new OtpConfigWatcher(otpConfigService);
+            configWatcher.start();
+            ActiveOtpStore.getInstance().loadFromDatabase();
+            OtpExpiryTimer expiryTimer = OtpExpiryTimer.getInstance();
+            expiryTimer.loadFromDatabase();
+            expiryTimer.start();
             OtpService otpService = new OtpService();
             OtpExpirationScheduler scheduler = new OtpExpirationScheduler(otpService);
             scheduler.start();
+            OtpArchiver archiver = new OtpArchiver();
+            archiver.start();
+            if (otpService.isOutboxDelivery()) {
+                OtpOutboxDispatcher.getInstance().start();
+            }
             HttpServer httpServer = new HttpServer();
             httpServer.start();
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 logger.info("Shutting down application...");
                 scheduler.stop();
+                expiryTimer.stop();
+                partitionManager.stop();
+                archiver.stop();
+                configWatcher.stop();
                 httpServer.stop();
+                if (otpService.isOutboxDelivery()) {
+                    OtpOutboxDispatcher.getInstance().stop();
+                } else if (otpService.isAsyncDelivery()) {
+                    AsyncDeliveryDispatcher.getInstance().shutdown(10);
+                }
                 DatabaseConfig.closeAllConnections();
                 OtpDeliveryServiceFactory.getInstance().shutdownAll();
                 logger.info("Application shutdown completed");
@@ -1,5 +1,6 @@
 package com.otpservice.api;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.otpservice.model.AuthPrincipal;
 import com.otpservice.model.User;
 import com.otpservice.util.JwtUtil;
 import com.sun.net.httpserver.Headers;
@@ -12,6 +13,7 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 /**
  * Базовый класс для HTTP-обработчиков
  */
@@ -69,44 +71,30 @@ public abstract class BaseHandler implements HttpHandler {
         return authHeader.substring(BEARER_PREFIX.length());
     }
     /**
-     * Проверяет JWT-токен и роль пользователя
+     * Аутентифицирует запрос: разбирает JWT-токен один раз и проверяет роль пользователя.
+     * При ошибке отправляет ответ 401/403.
      * 
      * @param exchange HTTP-обмен
      * @param requiredRole Требуемая роль или null, если роль не важна
-     * @return true, если токен валидный и роль соответствует требуемой (если указана)
+     * @return Данные пользователя или null, если запрос отклонен (ответ уже отправлен)
      * @throws IOException если произошла ошибка ввода-вывода
      */
-    protected boolean validateTokenAndRole(HttpExchange exchange, User.Role requiredRole) throws IOException {
+    protected AuthPrincipal authenticate(HttpExchange exchange, User.Role requiredRole) throws IOException {
         String token = extractJwtToken(exchange);
         if (token == null) {
             sendErrorResponse(exchange, 401, "Unauthorized: No token provided");
-            return false;
+            return null;
         }
-        if (!JwtUtil.validateToken(token)) {
+        Optional<AuthPrincipal> principal = JwtUtil.authenticate(token);
+        if (principal.isEmpty()) {
             sendErrorResponse(exchange, 401, "Unauthorized: Invalid or expired token");
-            return false;
-        }
-        if (requiredRole != null) {
-            String role = JwtUtil.extractRole(token);
-            if (role == null || !role.equals(requiredRole.name())) {
-                sendErrorResponse(exchange, 403, "Forbidden: Insufficient permissions");
-                return false;
-            }
+            return null;
         }
-        return true;
-    }
-    /**
-     * Извлекает имя пользователя из JWT-токена
-     * 
-     * @param exchange HTTP-обмен
-     * @return Имя пользователя или null, если токен не найден или неверен
-     */
-    protected String extractUsername(HttpExchange exchange) {
-        String token = extractJwtToken(exchange);
-        if (token == null || !JwtUtil.validateToken(token)) {
+        if (!principal.get().hasRole(requiredRole)) {
+            sendErrorResponse(exchange, 403, "Forbidden: Insufficient permissions");
             return null;
         }
-        return JwtUtil.extractUsername(token);
+        return principal.get();
     }
     /**
      * Читает тело запроса как строку
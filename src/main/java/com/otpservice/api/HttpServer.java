@@ -1,31 +1,43 @@
 package com.otpservice.api;
 import com.otpservice.api.admin.DeleteUserHandler;
 import com.otpservice.api.admin.GetAllUsersHandler;
+import com.otpservice.api.admin.GetDeliveryBreakersHandler;
+import com.otpservice.api.admin.GetMetricsHandler;
 import com.otpservice.api.admin.GetOtpConfigHandler;
 import com.otpservice.api.admin.UpdateOtpConfigHandler;
+import com.otpservice.api.health.ReadinessHandler;
 import com.otpservice.api.auth.LoginHandler;
 import com.otpservice.api.auth.RegisterHandler;
+import com.otpservice.api.nio.NioHttpServer;
 import com.otpservice.api.user.GenerateOtpHandler;
 import com.otpservice.api.user.ValidateOtpHandler;
 import com.otpservice.config.AppConfig;
-import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 /**
- * HTTP-сервер приложения
+ * HTTP-сервер приложения.
+ * Движок выбирается свойством server.engine: jdk (com.sun.net.httpserver) или nio (NioHttpServer).
  */
 public class HttpServer {
     private static final Logger logger = LoggerFactory.getLogger(HttpServer.class);
+    private static final String ENGINE_NIO = "nio";
     private final String host;
     private final int port;
+    private final String engine;
     private com.sun.net.httpserver.HttpServer server;
+    private NioHttpServer nioServer;
+    private ExecutorService executor;
+    private final OverloadFilter overloadFilter = new OverloadFilter();
     public HttpServer() {
         this.host = AppConfig.getServerHost();
         this.port = AppConfig.getServerPort();
+        this.engine = AppConfig.getServerEngine();
     }
     /**
      * Запускает HTTP-сервер и регистрирует обработчики
@@ -33,14 +45,28 @@ public class HttpServer {
      * @throws IOException если произошла ошибка при запуске сервера
      */
     public void start() throws IOException {
-        logger.info("Starting HTTP server on {} :{}", host, port);
-        server = com.sun.net.httpserver.HttpServer.create(
-                new InetSocketAddress(port),
-                0
-        );
-        server.setExecutor(Executors.newFixedThreadPool(10));
-        registerHandlers();
-        server.start();
+        logger.info("Starting HTTP server on {} :{} (engine: {})", host, port, engine);
+        if (ENGINE_NIO.equalsIgnoreCase(engine)) {
+            executor = RequestExecutorFactory.create(new ThreadPoolExecutor.AbortPolicy());
+            nioServer = new NioHttpServer(
+                    new InetSocketAddress(port),
+                    AppConfig.getServerNioIoThreads(),
+                    executor,
+                    AppConfig.getServerNioIdleTimeoutMs(),
+                    AppConfig.getServerNioMaxRequestBytes()
+            );
+            registerHandlers();
+            nioServer.start();
+        } else {
+            executor = RequestExecutorFactory.create(OverloadFilter.REJECTION_HANDLER);
+            server = com.sun.net.httpserver.HttpServer.create(
+                    new InetSocketAddress(port),
+                    0
+            );
+            server.setExecutor(executor);
+            registerHandlers();
+            server.start();
+        }
         logger.info("HTTP server started successfully");
     }
     /**
@@ -52,6 +78,22 @@ public class HttpServer {
             server.stop(3);
             logger.info("HTTP server stopped");
         }
+        if (nioServer != null) {
+            logger.info("Stopping NIO HTTP server");
+            nioServer.stop();
+            logger.info("NIO HTTP server stopped");
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
     }
     /**
      * @return Хост, на котором запущен сервер
@@ -75,19 +117,24 @@ public class HttpServer {
         createContext("/admin/config/update", new UpdateOtpConfigHandler());
         createContext("/admin/users", new GetAllUsersHandler());
         createContext("/admin/users/", new DeleteUserHandler());
+        createContext("/admin/metrics", new GetMetricsHandler());
+        createContext("/admin/delivery/breakers", new GetDeliveryBreakersHandler());
         createContext("/otp/generate", new GenerateOtpHandler());
         createContext("/otp/validate", new ValidateOtpHandler());
+        createContext("/health/ready", new ReadinessHandler());
     }
     /**
-     * Создает контекст (привязывает путь к обработчику)
+     * Создает контекст (привязывает путь к обработчику) в выбранном движке
      * 
      * @param path Путь API
      * @param handler Обработчик запросов
-     * @return Созданный контекст
      */
-    private HttpContext createContext(String path, HttpHandler handler) {
-        HttpContext context = server.createContext(path, handler);
+    private void createContext(String path, HttpHandler handler) {
+        if (nioServer != null) {
+            nioServer.createContext(path, handler);
+        } else {
+            server.createContext(path, handler).getFilters().add(overloadFilter);
+        }
         logger.debug("Registered handler for path: {}", path);
-        return context;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.otpservice.api;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionHandler;
+/**
+ * Ответ 503 на запросы, которые не поместились в очередь исполнителя JDK-сервера.
+ * Диспетчер com.sun.net.httpserver молча игнорирует RejectedExecutionException и оставляет соединение без ответа,
+ * поэтому отклоненная задача выполняется в потоке диспетчера с отметкой, а фильтр вместо обработчика
+ * сразу отвечает 503 и закрывает соединение.
+ */
+public class OverloadFilter extends Filter {
+    private static final Logger logger = LoggerFactory.getLogger(OverloadFilter.class);
+    private static final byte[] RESPONSE_BODY = "{\"error\":\"Service Unavailable\"}".getBytes(StandardCharsets.UTF_8);
+    private static final ThreadLocal<Boolean> REJECTED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    /**
+     * Обработчик переполнения исполнителя: выполняет задачу в вызывающем потоке в режиме отказа
+     */
+    public static final RejectedExecutionHandler REJECTION_HANDLER = (task, executor) -> {
+        REJECTED.set(Boolean.TRUE);
+        try {
+            task.run();
+        } finally {
+            REJECTED.set(Boolean.FALSE);
+        }
+    };
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (!REJECTED.get()) {
+            chain.doFilter(exchange);
+            return;
+        }
+        logger.warn("Request executor rejected request from {}", exchange.getRemoteAddress());
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(503, RESPONSE_BODY.length);
+            exchange.getResponseBody().write(RESPONSE_BODY);
+        } finally {
+            exchange.close();
+        }
+    }
+    @Override
+    public String description() {
+        return "Answers 503 to requests rejected by the request executor";
+    }
+} 
\ No newline at end of file
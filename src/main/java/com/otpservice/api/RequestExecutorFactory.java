@@ -0,0 +1,113 @@
+package com.otpservice.api;
+import com.otpservice.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * Фабрика исполнителей для обработки HTTP-запросов
+ */
+public final class RequestExecutorFactory {
+    private static final Logger logger = LoggerFactory.getLogger(RequestExecutorFactory.class);
+    /**
+     * Режим исполнения обработчиков запросов
+     */
+    public enum Mode {
+        FIXED, WORK_STEALING, VIRTUAL
+    }
+    private RequestExecutorFactory() {
+    }
+    /**
+     * Создает исполнитель согласно настройкам server.executor.*
+     *
+     * @param rejectionHandler Обработчик задач, не поместившихся в ограниченную очередь пула fixed
+     * @return Исполнитель для обработчиков запросов
+     */
+    public static ExecutorService create(RejectedExecutionHandler rejectionHandler) {
+        Mode mode = parseMode(AppConfig.getServerExecutorMode());
+        int threads = AppConfig.getServerExecutorThreads();
+        int queueCapacity = AppConfig.getServerExecutorQueueCapacity();
+        switch (mode) {
+            case VIRTUAL:
+                ExecutorService virtualExecutor = createVirtualThreadExecutor();
+                if (virtualExecutor != null) {
+                    logger.info("HTTP request executor: mode={}, threads=unbounded (virtual), queue=none", mode);
+                    return virtualExecutor;
+                }
+                logger.warn("Virtual threads are not available on Java {}, falling back to FIXED mode",
+                        Runtime.version().feature());
+                return createFixedThreadPool(threads, queueCapacity, rejectionHandler);
+            case WORK_STEALING:
+                logger.info("HTTP request executor: mode={}, threads={}, queue=unbounded (per-worker deques)",
+                        mode, threads);
+                return Executors.newWorkStealingPool(threads);
+            case FIXED:
+            default:
+                return createFixedThreadPool(threads, queueCapacity, rejectionHandler);
+        }
+    }
+    private static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown server.executor.mode '{}', using {}", value, Mode.FIXED);
+            return Mode.FIXED;
+        }
+    }
+    /**
+     * Создает пул с фиксированным числом потоков
+     *
+     * @param threads Количество потоков
+     * @param queueCapacity Емкость очереди задач (0 - без ограничения)
+     * @param rejectionHandler Обработчик задач при заполненной очереди
+     * @return Исполнитель
+     */
+    private static ExecutorService createFixedThreadPool(int threads, int queueCapacity,
+                                                         RejectedExecutionHandler rejectionHandler) {
+        BlockingQueue<Runnable> queue = queueCapacity > 0
+                ? new LinkedBlockingQueue<>(queueCapacity)
+                : new LinkedBlockingQueue<>();
+        logger.info("HTTP request executor: mode={}, threads={}, queue={}", Mode.FIXED, threads,
+                queueCapacity > 0 ? queueCapacity : "unbounded");
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+                new NamedThreadFactory("http-worker-"), rejectionHandler);
+    }
+    /**
+     * Создает исполнитель на виртуальных потоках, если JDK их поддерживает (Java 21+)
+     *
+     * @return Исполнитель или null, если виртуальные потоки недоступны
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            logger.debug("Virtual thread executor is not available", e);
+            return null;
+        }
+    }
+    /**
+     * Фабрика потоков с читаемыми именами
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        }
+    }
+} 
\ No newline at end of file
@@ -26,7 +26,7 @@ public class DeleteUserHandler extends BaseHandler {
             sendErrorResponse(exchange, 405, "Method Not Allowed");
             return;
         }
-        if (!validateTokenAndRole(exchange, User.Role.ADMIN)) {
+        if (authenticate(exchange, User.Role.ADMIN) == null) {
             return;
         }
         String path = exchange.getRequestURI().getPath();
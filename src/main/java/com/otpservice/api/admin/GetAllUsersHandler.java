@@ -22,7 +22,7 @@ public class GetAllUsersHandler extends BaseHandler {
             sendErrorResponse(exchange, 405, "Method Not Allowed");
             return;
         }
-        if (!validateTokenAndRole(exchange, User.Role.ADMIN)) {
+        if (authenticate(exchange, User.Role.ADMIN) == null) {
             return;
         }
         try {
@@ -0,0 +1,27 @@
+package com.otpservice.api.admin;
+import com.otpservice.api.BaseHandler;
+import com.otpservice.model.User;
+import com.otpservice.service.delivery.OtpDeliveryServiceFactory;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+/**
+ * Обработчик для просмотра состояния circuit breaker каналов доставки администратором
+ */
+public class GetDeliveryBreakersHandler extends BaseHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            sendErrorResponse(exchange, 405, "Method Not Allowed");
+            return;
+        }
+        if (authenticate(exchange, User.Role.ADMIN) == null) {
+            return;
+        }
+        try {
+            sendJsonResponse(exchange, 200, OtpDeliveryServiceFactory.getInstance().getBreakerStats());
+        } catch (Exception e) {
+            logger.error("Error collecting delivery breaker state", e);
+            sendErrorResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.otpservice.api.admin;
+import com.otpservice.api.BaseHandler;
+import com.otpservice.config.AppConfig;
+import com.otpservice.config.DatabaseConfig;
+import com.otpservice.dao.OtpCodeArchive;
+import com.otpservice.model.OtpCode;
+import com.otpservice.model.User;
+import com.otpservice.service.ActiveOtpStore;
+import com.otpservice.service.BatchJobRunner;
+import com.otpservice.service.ConsumedChallengeSet;
+import com.otpservice.service.OtpExpiryTimer;
+import com.otpservice.service.UserService;
+import com.otpservice.service.delivery.AsyncDeliveryDispatcher;
+import com.otpservice.service.delivery.EmailOtpDeliveryService;
+import com.otpservice.service.delivery.FileOtpDeliveryService;
+import com.otpservice.service.delivery.OtpDeliveryService;
+import com.otpservice.service.delivery.OtpDeliveryServiceFactory;
+import com.otpservice.service.delivery.OtpOutboxDispatcher;
+import com.otpservice.service.delivery.TelegramOtpDeliveryService;
+import com.otpservice.util.JwtUtil;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+/**
+ * Обработчик для получения внутренних метрик сервиса администратором
+ */
+public class GetMetricsHandler extends BaseHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            sendErrorResponse(exchange, 405, "Method Not Allowed");
+            return;
+        }
+        if (authenticate(exchange, User.Role.ADMIN) == null) {
+            return;
+        }
+        try {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("jwtCache", JwtUtil.getTokenCacheStats());
+            response.put("userCache", UserService.getCacheStats());
+            response.put("dbPool", DatabaseConfig.getPoolStats());
+            response.put("statementCache", DatabaseConfig.getStatementCacheStats());
+            response.put("activeOtpStore", ActiveOtpStore.getInstance().getStats());
+            response.put("expiryTimer", OtpExpiryTimer.getInstance().getStats());
+            response.put("maintenanceJobs", BatchJobRunner.getLastRuns());
+            response.put("archive", OtpCodeArchive.getInstance().getStats());
+            if ("challenge".equalsIgnoreCase(AppConfig.getOtpMode())) {
+                response.put("consumedChallenges", ConsumedChallengeSet.getInstance().getStats());
+            }
+            OtpDeliveryServiceFactory deliveryFactory = OtpDeliveryServiceFactory.getInstance();
+            OtpDeliveryService emailService = deliveryFactory.getCreatedDeliveryService(OtpCode.DeliveryChannel.EMAIL);
+            if (emailService instanceof EmailOtpDeliveryService) {
+                response.put("smtpPool", ((EmailOtpDeliveryService) emailService).getTransportPoolStats());
+            }
+            OtpDeliveryService telegramService = deliveryFactory.getCreatedDeliveryService(OtpCode.DeliveryChannel.TELEGRAM);
+            if (telegramService instanceof TelegramOtpDeliveryService) {
+                response.put("telegramQueue", ((TelegramOtpDeliveryService) telegramService).getSendQueueStats());
+            }
+            OtpDeliveryService fileService = deliveryFactory.getCreatedDeliveryService(OtpCode.DeliveryChannel.FILE);
+            if (fileService instanceof FileOtpDeliveryService) {
+                response.put("fileWriter", ((FileOtpDeliveryService) fileService).getWriterStats());
+            }
+            if ("async".equalsIgnoreCase(AppConfig.getDeliveryMode())) {
+                response.put("deliveryQueues", AsyncDeliveryDispatcher.getInstance().getStats());
+            } else if ("outbox".equalsIgnoreCase(AppConfig.getDeliveryMode())) {
+                response.put("outbox", OtpOutboxDispatcher.getInstance().getStats());
+            }
+            sendJsonResponse(exchange, 200, response);
+        } catch (Exception e) {
+            logger.error("Error collecting metrics", e);
+            sendErrorResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
+        }
+    }
+} 
\ No newline at end of file
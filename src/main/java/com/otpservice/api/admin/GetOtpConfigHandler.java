@@ -21,7 +21,7 @@ public class GetOtpConfigHandler extends BaseHandler {
             sendErrorResponse(exchange, 405, "Method Not Allowed");
             return;
         }
-        if (!validateTokenAndRole(exchange, User.Role.ADMIN)) {
+        if (authenticate(exchange, User.Role.ADMIN) == null) {
             return;
         }
         try {
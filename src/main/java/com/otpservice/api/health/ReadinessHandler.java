@@ -0,0 +1,25 @@
+package com.otpservice.api.health;
+import com.otpservice.api.BaseHandler;
+import com.otpservice.service.delivery.OtpDeliveryServiceFactory;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+/**
+ * Проверка готовности: 200, когда все каналы доставки подготовлены, иначе 503
+ */
+public class ReadinessHandler extends BaseHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            sendErrorResponse(exchange, 405, "Method Not Allowed");
+            return;
+        }
+        OtpDeliveryServiceFactory factory = OtpDeliveryServiceFactory.getInstance();
+        boolean ready = factory.isReady();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", ready ? "READY" : "NOT_READY");
+        response.put("deliveryChannels", factory.getReadiness());
+        sendJsonResponse(exchange, ready ? 200 : 503, response);
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.otpservice.api.nio;
+import com.sun.net.httpserver.Headers;
+import java.nio.charset.StandardCharsets;
+/**
+ * Инкрементальный разборщик HTTP/1.x запросов из входного буфера соединения
+ */
+final class HttpRequestParser {
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private final int maxBodyBytes;
+    HttpRequestParser(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+    /**
+     * Пытается разобрать один запрос из начала буфера
+     *
+     * @param data Накопленные байты соединения
+     * @param length Количество значимых байт в буфере
+     * @return Разобранный запрос или null, если данных пока недостаточно
+     */
+    ParsedRequest parse(byte[] data, int length) {
+        int headerEnd = indexOfHeaderEnd(data, length);
+        if (headerEnd < 0) {
+            if (length > MAX_HEADER_BYTES) {
+                return ParsedRequest.error(431, "Request Header Fields Too Large", length);
+            }
+            return null;
+        }
+        String head = new String(data, 0, headerEnd, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            return ParsedRequest.error(400, "Bad Request", length);
+        }
+        Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                return ParsedRequest.error(400, "Bad Request", length);
+            }
+            headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+        String transferEncoding = headers.getFirst("Transfer-Encoding");
+        if (transferEncoding != null && !transferEncoding.equalsIgnoreCase("identity")) {
+            return ParsedRequest.error(501, "Not Implemented", length);
+        }
+        int contentLength = 0;
+        String contentLengthHeader = headers.getFirst("Content-Length");
+        if (contentLengthHeader != null) {
+            try {
+                contentLength = Integer.parseInt(contentLengthHeader);
+            } catch (NumberFormatException e) {
+                return ParsedRequest.error(400, "Bad Request", length);
+            }
+            if (contentLength < 0) {
+                return ParsedRequest.error(400, "Bad Request", length);
+            }
+            if (contentLength > maxBodyBytes) {
+                return ParsedRequest.error(413, "Payload Too Large", length);
+            }
+        }
+        int bodyStart = headerEnd + 4;
+        if (length - bodyStart < contentLength) {
+            return null;
+        }
+        byte[] body = new byte[contentLength];
+        System.arraycopy(data, bodyStart, body, 0, contentLength);
+        return new ParsedRequest(requestLine[0], requestLine[1], requestLine[2], headers, body,
+                bodyStart + contentLength);
+    }
+    private static int indexOfHeaderEnd(byte[] data, int length) {
+        int limit = Math.min(length, MAX_HEADER_BYTES + 4);
+        for (int i = 0; i + 3 < limit; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    /**
+     * Разобранный запрос либо ошибка разбора, на которую нужно ответить и закрыть соединение
+     */
+    static final class ParsedRequest {
+        final String method;
+        final String rawUri;
+        final String protocol;
+        final Headers headers;
+        final byte[] body;
+        final int consumedBytes;
+        final int errorStatus;
+        final String errorMessage;
+        ParsedRequest(String method, String rawUri, String protocol, Headers headers, byte[] body, int consumedBytes) {
+            this.method = method;
+            this.rawUri = rawUri;
+            this.protocol = protocol;
+            this.headers = headers;
+            this.body = body;
+            this.consumedBytes = consumedBytes;
+            this.errorStatus = 0;
+            this.errorMessage = null;
+        }
+        private ParsedRequest(int errorStatus, String errorMessage, int consumedBytes) {
+            this.method = null;
+            this.rawUri = null;
+            this.protocol = "HTTP/1.1";
+            this.headers = new Headers();
+            this.body = new byte[0];
+            this.consumedBytes = consumedBytes;
+            this.errorStatus = errorStatus;
+            this.errorMessage = errorMessage;
+        }
+        static ParsedRequest error(int status, String message, int consumedBytes) {
+            return new ParsedRequest(status, message, consumedBytes);
+        }
+        boolean isError() {
+            return errorStatus != 0;
+        }
+        /**
+         * @return true, если после ответа соединение можно оставить открытым
+         */
+        boolean isKeepAlive() {
+            if (isError()) {
+                return false;
+            }
+            String connection = headers.getFirst("Connection");
+            if ("HTTP/1.0".equals(protocol)) {
+                return connection != null && connection.equalsIgnoreCase("keep-alive");
+            }
+            return connection == null || !connection.equalsIgnoreCase("close");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.otpservice.api.nio;
+import com.sun.net.httpserver.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+/**
+ * Состояние одного клиентского соединения NIO-сервера.
+ * Все методы, кроме completeExchange, вызываются только из IO-потока, владеющего соединением.
+ * Конвейерные (pipelined) запросы обрабатываются строго по очереди, поэтому ответы уходят в порядке запросов.
+ */
+final class NioConnection {
+    private static final Logger logger = LoggerFactory.getLogger(NioConnection.class);
+    private static final int MAX_PIPELINED_REQUESTS = 32;
+    private final NioHttpServer server;
+    private final NioHttpServer.IoLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final HttpRequestParser parser;
+    private final Deque<HttpRequestParser.ParsedRequest> pendingRequests = new ArrayDeque<>();
+    private final Deque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+    private final InetSocketAddress remoteAddress;
+    private final InetSocketAddress localAddress;
+    private byte[] inbound = new byte[4096];
+    private int inboundLength;
+    private boolean inFlight;
+    private boolean closeAfterWrite;
+    private boolean closed;
+    private boolean endOfInput;
+    private long lastActivityNanos = System.nanoTime();
+    NioConnection(NioHttpServer server, NioHttpServer.IoLoop loop, SocketChannel channel, SelectionKey key,
+                  HttpRequestParser parser) throws IOException {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.parser = parser;
+        this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+    }
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+    InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+    /**
+     * Читает доступные данные и выделяет из них полные запросы
+     */
+    void onReadable(ByteBuffer readBuffer) {
+        try {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                endOfInput = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                closeIfDrained();
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            lastActivityNanos = System.nanoTime();
+            readBuffer.flip();
+            append(readBuffer);
+            parseRequests();
+            dispatchNext();
+        } catch (IOException e) {
+            logger.debug("Error reading from {}", remoteAddress, e);
+            close();
+        }
+    }
+    /**
+     * Дописывает накопленные ответы в сокет
+     */
+    void onWritable() {
+        if (closed) {
+            return;
+        }
+        try {
+            while (!pendingWrites.isEmpty()) {
+                ByteBuffer buffer = pendingWrites.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                pendingWrites.poll();
+            }
+            lastActivityNanos = System.nanoTime();
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (closeAfterWrite) {
+                close();
+            }
+        } catch (IOException e) {
+            logger.debug("Error writing to {}", remoteAddress, e);
+            close();
+        }
+    }
+    /**
+     * Передает готовый ответ соединению. Может вызываться из рабочего потока.
+     *
+     * @param response Сериализованный ответ
+     * @param keepAlive Оставить ли соединение открытым после ответа
+     */
+    void completeExchange(byte[] response, boolean keepAlive) {
+        loop.execute(() -> {
+            inFlight = false;
+            enqueueResponse(response, keepAlive);
+            dispatchNext();
+            closeIfDrained();
+        });
+    }
+    /**
+     * @return true, если соединение простаивает дольше заданного времени
+     */
+    boolean isIdle(long nowNanos, long idleTimeoutNanos) {
+        return !inFlight && pendingWrites.isEmpty() && nowNanos - lastActivityNanos > idleTimeoutNanos;
+    }
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing connection {}", remoteAddress, e);
+        }
+    }
+    /**
+     * Закрывает соединение, если клиент завершил передачу и все ответы уже отправлены
+     */
+    private void closeIfDrained() {
+        if (endOfInput && !inFlight && pendingRequests.isEmpty()) {
+            closeAfterWrite = true;
+            if (pendingWrites.isEmpty()) {
+                close();
+            }
+        }
+    }
+    private void append(ByteBuffer data) {
+        int required = inboundLength + data.remaining();
+        if (required > inbound.length) {
+            inbound = Arrays.copyOf(inbound, Math.max(required, inbound.length * 2));
+        }
+        data.get(inbound, inboundLength, data.remaining());
+        inboundLength = required;
+    }
+    private void parseRequests() {
+        while (inboundLength > 0 && !closeAfterWrite) {
+            HttpRequestParser.ParsedRequest request = parser.parse(inbound, inboundLength);
+            if (request == null) {
+                break;
+            }
+            int consumed = Math.min(request.consumedBytes, inboundLength);
+            System.arraycopy(inbound, consumed, inbound, 0, inboundLength - consumed);
+            inboundLength -= consumed;
+            pendingRequests.add(request);
+            if (request.isError() || !request.isKeepAlive()) {
+                inboundLength = 0;
+                break;
+            }
+        }
+        if (pendingRequests.size() >= MAX_PIPELINED_REQUESTS) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+    private void dispatchNext() {
+        if (closed || inFlight || closeAfterWrite) {
+            return;
+        }
+        HttpRequestParser.ParsedRequest request = pendingRequests.poll();
+        if (request == null) {
+            return;
+        }
+        if (pendingRequests.size() < MAX_PIPELINED_REQUESTS && !endOfInput && key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+        if (request.isError()) {
+            enqueueResponse(errorResponse(request.errorStatus, request.errorMessage), false);
+            return;
+        }
+        inFlight = true;
+        try {
+            server.dispatch(this, request);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Request executor rejected request from {}", remoteAddress);
+            inFlight = false;
+            enqueueResponse(errorResponse(503, "Service Unavailable"), false);
+        }
+    }
+    private void enqueueResponse(byte[] response, boolean keepAlive) {
+        if (closed) {
+            return;
+        }
+        if (!keepAlive) {
+            closeAfterWrite = true;
+            pendingRequests.clear();
+        }
+        pendingWrites.add(ByteBuffer.wrap(response));
+        onWritable();
+    }
+    static byte[] errorResponse(int status, String message) {
+        Headers headers = new Headers();
+        headers.set("Content-Type", "application/json");
+        byte[] body = ("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        return NioHttpExchange.serialize(status, headers, body, "HTTP/1.1", false);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.otpservice.api.nio;
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * Контекст (путь и обработчик) NIO-сервера, совместимый с API com.sun.net.httpserver
+ */
+final class NioHttpContext extends HttpContext {
+    private final String path;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final List<Filter> filters = new ArrayList<>();
+    private volatile HttpHandler handler;
+    private volatile Authenticator authenticator;
+    NioHttpContext(String path, HttpHandler handler) {
+        this.path = path;
+        this.handler = handler;
+    }
+    @Override
+    public HttpHandler getHandler() {
+        return handler;
+    }
+    @Override
+    public void setHandler(HttpHandler handler) {
+        this.handler = handler;
+    }
+    @Override
+    public String getPath() {
+        return path;
+    }
+    /**
+     * NIO-движок не является экземпляром com.sun.net.httpserver.HttpServer
+     *
+     * @return всегда null
+     */
+    @Override
+    public HttpServer getServer() {
+        return null;
+    }
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+    @Override
+    public List<Filter> getFilters() {
+        return filters;
+    }
+    @Override
+    public Authenticator setAuthenticator(Authenticator auth) {
+        Authenticator previous = authenticator;
+        authenticator = auth;
+        return previous;
+    }
+    @Override
+    public Authenticator getAuthenticator() {
+        return authenticator;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package com.otpservice.api.nio;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Адаптер HttpExchange для NIO-движка: обработчики BaseHandler работают с ним без изменений.
+ * Тело ответа буферизуется и передается соединению целиком при закрытии потока ответа.
+ */
+final class NioHttpExchange extends HttpExchange {
+    private final NioConnection connection;
+    private final NioHttpContext context;
+    private final String method;
+    private final URI requestUri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final boolean keepAlive;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final ResponseBody responseBuffer = new ResponseBody();
+    private InputStream requestBody;
+    private OutputStream responseBody = responseBuffer;
+    private int responseCode = -1;
+    private boolean headersSent;
+    private boolean finished;
+    NioHttpExchange(NioConnection connection, NioHttpContext context, String method, URI requestUri,
+                    String protocol, Headers requestHeaders, byte[] body, boolean keepAlive) {
+        this.connection = connection;
+        this.context = context;
+        this.method = method;
+        this.requestUri = requestUri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(body);
+        this.keepAlive = keepAlive;
+    }
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+    @Override
+    public URI getRequestURI() {
+        return requestUri;
+    }
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+    @Override
+    public void close() {
+        finish();
+    }
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (headersSent) {
+            throw new IOException("Response headers already sent");
+        }
+        headersSent = true;
+        responseCode = rCode;
+    }
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.getLocalAddress();
+    }
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+    /**
+     * Завершает обмен: сериализует ответ и передает его соединению. Повторные вызовы игнорируются.
+     * Если обработчик не отправил заголовки, клиент получает 500.
+     */
+    void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!headersSent) {
+            responseCode = 500;
+            responseBuffer.reset();
+        }
+        connection.completeExchange(serialize(responseCode, responseHeaders, responseBuffer.toByteArray(),
+                protocol, keepAlive), keepAlive);
+    }
+    /**
+     * Формирует байтовое представление HTTP-ответа
+     */
+    static byte[] serialize(int status, Headers headers, byte[] body, String protocol, boolean keepAlive) {
+        StringBuilder head = new StringBuilder(128);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reasonPhrase(status)).append("\r\n");
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase("Content-Length")
+                    || header.getKey().equalsIgnoreCase("Connection")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("Content-Length: ").append(body.length).append("\r\n");
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if ("HTTP/1.0".equals(protocol)) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] response = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, response, 0, headBytes.length);
+        System.arraycopy(body, 0, response, headBytes.length, body.length);
+        return response;
+    }
+    private static String reasonPhrase(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default: return "Status";
+        }
+    }
+    /**
+     * Буфер тела ответа; закрытие потока завершает обмен, как в com.sun.net.httpserver
+     */
+    private final class ResponseBody extends ByteArrayOutputStream {
+        ResponseBody() {
+            super(256);
+        }
+        @Override
+        public void close() {
+            finish();
+        }
+    }
+}
\ No newline at end of file
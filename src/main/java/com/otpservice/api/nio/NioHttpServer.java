@@ -0,0 +1,252 @@
+package com.otpservice.api.nio;
+import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+/**
+ * HTTP/1.1 сервер на неблокирующих NIO-селекторах.
+ * Каждый IO-поток имеет собственный селектор, сам принимает соединения с общего серверного сокета
+ * и обслуживает их чтение/запись; обработчики выполняются в переданном исполнителе.
+ * Поддерживаются keep-alive и конвейерная обработка запросов.
+ */
+public class NioHttpServer {
+    private static final Logger logger = LoggerFactory.getLogger(NioHttpServer.class);
+    private static final long SELECT_TIMEOUT_MS = 1000;
+    private final InetSocketAddress address;
+    private final int ioThreads;
+    private final ExecutorService executor;
+    private final long idleTimeoutNanos;
+    private final int maxRequestBytes;
+    private final List<NioHttpContext> contexts = new CopyOnWriteArrayList<>();
+    private final List<IoLoop> loops = new ArrayList<>();
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    /**
+     * @param address Адрес для прослушивания
+     * @param ioThreads Количество IO-потоков (селекторов)
+     * @param executor Исполнитель для обработчиков запросов
+     * @param idleTimeoutMs Время простоя keep-alive соединения до закрытия
+     * @param maxRequestBytes Максимальный размер тела запроса
+     */
+    public NioHttpServer(InetSocketAddress address, int ioThreads, ExecutorService executor,
+                         long idleTimeoutMs, int maxRequestBytes) {
+        this.address = address;
+        this.ioThreads = ioThreads;
+        this.executor = executor;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.maxRequestBytes = maxRequestBytes;
+    }
+    /**
+     * Регистрирует обработчик для пути. Выбирается контекст с самым длинным совпадающим префиксом,
+     * как в com.sun.net.httpserver.
+     *
+     * @param path Путь API
+     * @param handler Обработчик запросов
+     */
+    public void createContext(String path, HttpHandler handler) {
+        contexts.add(new NioHttpContext(path, handler));
+        contexts.sort(Comparator.comparingInt((NioHttpContext c) -> c.getPath().length()).reversed());
+    }
+    /**
+     * Открывает серверный сокет и запускает IO-потоки
+     *
+     * @throws IOException если не удалось открыть сокет
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        running = true;
+        for (int i = 0; i < ioThreads; i++) {
+            IoLoop loop = new IoLoop(i);
+            loops.add(loop);
+            loop.thread.start();
+        }
+        logger.info("NIO HTTP engine listening on {} with {} IO threads", address, ioThreads);
+    }
+    /**
+     * Останавливает прием соединений и IO-потоки
+     */
+    public void stop() {
+        running = false;
+        for (IoLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        for (IoLoop loop : loops) {
+            try {
+                loop.thread.join(TimeUnit.SECONDS.toMillis(3));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Error closing server socket", e);
+        }
+        loops.clear();
+    }
+    /**
+     * Передает запрос обработчику в рабочем потоке
+     */
+    void dispatch(NioConnection connection, HttpRequestParser.ParsedRequest request) {
+        executor.execute(() -> handle(connection, request));
+    }
+    private void handle(NioConnection connection, HttpRequestParser.ParsedRequest request) {
+        URI uri;
+        try {
+            uri = new URI(request.rawUri);
+        } catch (URISyntaxException e) {
+            connection.completeExchange(NioConnection.errorResponse(400, "Bad Request"), false);
+            return;
+        }
+        NioHttpContext context = findContext(uri.getPath());
+        if (context == null) {
+            connection.completeExchange(NioConnection.errorResponse(404, "Not Found"), request.isKeepAlive());
+            return;
+        }
+        NioHttpExchange exchange = new NioHttpExchange(connection, context, request.method, uri,
+                request.protocol, request.headers, request.body, request.isKeepAlive());
+        try {
+            context.getHandler().handle(exchange);
+        } catch (Exception e) {
+            logger.error("Unhandled error in handler for {}", uri.getPath(), e);
+        } finally {
+            exchange.finish();
+        }
+    }
+    private NioHttpContext findContext(String path) {
+        if (path == null) {
+            return null;
+        }
+        for (NioHttpContext context : contexts) {
+            if (path.startsWith(context.getPath())) {
+                return context;
+            }
+        }
+        return null;
+    }
+    /**
+     * Цикл обработки событий одного селектора
+     */
+    final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16 * 1024);
+        private final HttpRequestParser parser = new HttpRequestParser(maxRequestBytes);
+        private long lastIdleCheckNanos = System.nanoTime();
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            this.thread = new Thread(this, "nio-http-io-" + index);
+        }
+        /**
+         * Выполняет задачу в IO-потоке этого цикла
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MS);
+                    runTasks();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (key.isReadable()) {
+                            connection.onReadable(readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    }
+                    closeIdleConnections();
+                } catch (IOException e) {
+                    logger.error("Error in NIO event loop", e);
+                }
+            }
+            closeAll();
+        }
+        private void accept() throws IOException {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new NioConnection(NioHttpServer.this, this, channel, key, parser));
+        }
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error running NIO loop task", e);
+                }
+            }
+        }
+        private void closeIdleConnections() {
+            long now = System.nanoTime();
+            if (now - lastIdleCheckNanos < TimeUnit.MILLISECONDS.toNanos(SELECT_TIMEOUT_MS)) {
+                return;
+            }
+            lastIdleCheckNanos = now;
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection) {
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (connection.isIdle(now, idleTimeoutNanos)) {
+                        connection.close();
+                    }
+                }
+            }
+        }
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection) {
+                    ((NioConnection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.warn("Error closing selector", e);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,15 +1,19 @@
 package com.otpservice.api.user;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.otpservice.api.BaseHandler;
+import com.otpservice.model.AuthPrincipal;
 import com.otpservice.model.OtpCode;
+import com.otpservice.model.OtpDeliveryTicket;
 import com.otpservice.model.User;
 import com.otpservice.service.OtpService;
 import com.otpservice.service.UserService;
+import com.otpservice.service.delivery.DeliveryUnavailableException;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 /**
  * Обработчик для генерации OTP кодов
  */
@@ -26,26 +30,26 @@ public class GenerateOtpHandler extends BaseHandler {
             sendErrorResponse(exchange, 405, "Method Not Allowed");
             return;
         }
-        if (!validateTokenAndRole(exchange, null)) {
+        AuthPrincipal principal = authenticate(exchange, null);
+        if (principal == null) {
             return;
         }
-        String username = extractUsername(exchange);
-        if (username == null) {
-            sendErrorResponse(exchange, 401, "Invalid token");
-            return;
-        }
-        Optional<User> userOptional = userService.getUserByUsername(username);
-        if (userOptional.isEmpty()) {
-            sendErrorResponse(exchange, 401, "User not found");
-            return;
+        Long userId = principal.getUserId();
+        if (userId == null) {
+            Optional<User> userOptional = userService.getUserByUsername(principal.getUsername());
+            if (userOptional.isEmpty()) {
+                sendErrorResponse(exchange, 401, "User not found");
+                return;
+            }
+            userId = userOptional.get().getId();
         }
-        User user = userOptional.get();
         try {
             String requestBody = readRequestBody(exchange);
             JsonNode jsonNode = objectMapper.readTree(requestBody);
             String operationId = jsonNode.has("operationId") ? jsonNode.get("operationId").asText() : null;
             String recipient = jsonNode.has("recipient") ? jsonNode.get("recipient").asText() : null;
             String deliveryChannelStr = jsonNode.has("deliveryChannel") ? jsonNode.get("deliveryChannel").asText() : null;
+            String fallbackRecipient = jsonNode.has("fallbackRecipient") ? jsonNode.get("fallbackRecipient").asText() : null;
             if (operationId == null || operationId.isEmpty()) {
                 sendErrorResponse(exchange, 400, "Operation ID is required");
                 return;
@@ -65,16 +69,40 @@ public class GenerateOtpHandler extends BaseHandler {
                 sendErrorResponse(exchange, 400, "Invalid delivery channel: " + deliveryChannelStr);
                 return;
             }
-            OtpCode otpCode = otpService.generateAndSendOtp(user.getId(), operationId, recipient, deliveryChannel);
+            if (otpService.isAsyncDelivery()) {
+                OtpDeliveryTicket ticket = otpService.generateAndQueueOtp(userId, operationId, recipient,
+                        deliveryChannel, fallbackRecipient);
+                Map<String, Object> response = new HashMap<>();
+                response.put("operationId", ticket.getOtpCode().getOperationId());
+                response.put("expiresAt", ticket.getOtpCode().getExpiresAt().toString());
+                response.put("deliveryChannel", ticket.getOtpCode().getDeliveryChannel().name());
+                response.put("deliveryId", ticket.getDeliveryId());
+                if (otpService.isChallengeMode()) {
+                    response.put("challenge", otpService.createChallenge(ticket.getOtpCode()));
+                }
+                response.put("success", true);
+                response.put("message", "OTP code generated and queued for delivery");
+                sendJsonResponse(exchange, 202, response);
+                return;
+            }
+            OtpCode otpCode = otpService.generateAndSendOtp(userId, operationId, recipient,
+                    deliveryChannel, fallbackRecipient);
             Map<String, Object> response = new HashMap<>();
             response.put("operationId", otpCode.getOperationId());
             response.put("expiresAt", otpCode.getExpiresAt().toString());
             response.put("deliveryChannel", otpCode.getDeliveryChannel().name());
+            if (otpService.isChallengeMode()) {
+                response.put("challenge", otpService.createChallenge(otpCode));
+            }
             response.put("success", true);
             response.put("message", "OTP code generated and sent successfully");
             sendJsonResponse(exchange, 201, response);
         } catch (IllegalArgumentException e) {
             sendErrorResponse(exchange, 400, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            sendErrorResponse(exchange, 503, "Delivery queue is full, try again later");
+        } catch (DeliveryUnavailableException e) {
+            sendErrorResponse(exchange, 503, e.getMessage());
         } catch (Exception e) {
             logger.error("Error generating OTP code", e);
             sendErrorResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
@@ -1,18 +1,25 @@
 package com.otpservice.api.user;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.otpservice.api.BaseHandler;
+import com.otpservice.model.AuthPrincipal;
+import com.otpservice.model.OtpCode;
+import com.otpservice.model.User;
 import com.otpservice.service.OtpService;
+import com.otpservice.service.UserService;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 /**
  * Обработчик для валидации OTP кодов
  */
 public class ValidateOtpHandler extends BaseHandler {
     private final OtpService otpService;
+    private final UserService userService;
     public ValidateOtpHandler() {
         this.otpService = new OtpService();
+        this.userService = new UserService();
     }
     @Override
     public void handle(HttpExchange exchange) throws IOException {
@@ -20,14 +27,25 @@ public class ValidateOtpHandler extends BaseHandler {
             sendErrorResponse(exchange, 405, "Method Not Allowed");
             return;
         }
-        if (!validateTokenAndRole(exchange, null)) {
+        AuthPrincipal principal = authenticate(exchange, null);
+        if (principal == null) {
             return;
         }
+        Long userId = principal.getUserId();
+        if (userId == null && otpService.isStatelessMode()) {
+            Optional<User> userOptional = userService.getUserByUsername(principal.getUsername());
+            if (userOptional.isEmpty()) {
+                sendErrorResponse(exchange, 401, "User not found");
+                return;
+            }
+            userId = userOptional.get().getId();
+        }
         try {
             String requestBody = readRequestBody(exchange);
             JsonNode jsonNode = objectMapper.readTree(requestBody);
             String operationId = jsonNode.has("operationId") ? jsonNode.get("operationId").asText() : null;
             String code = jsonNode.has("code") ? jsonNode.get("code").asText() : null;
+            String challenge = jsonNode.has("challenge") ? jsonNode.get("challenge").asText() : null;
             if (operationId == null || operationId.isEmpty()) {
                 sendErrorResponse(exchange, 400, "Operation ID is required");
                 return;
@@ -36,13 +54,19 @@ public class ValidateOtpHandler extends BaseHandler {
                 sendErrorResponse(exchange, 400, "OTP code is required");
                 return;
             }
-            boolean isValid = otpService.validateOtp(operationId, code);
+            if (otpService.isChallengeMode() && (challenge == null || challenge.isEmpty())) {
+                sendErrorResponse(exchange, 400, "Challenge is required");
+                return;
+            }
+            OtpCode.ValidationResult result = otpService.validateOtp(userId, operationId, code, challenge);
             Map<String, Object> response = new HashMap<>();
-            response.put("valid", isValid);
-            if (isValid) {
+            response.put("valid", result == OtpCode.ValidationResult.VALID);
+            if (result == OtpCode.ValidationResult.VALID) {
                 response.put("message", "OTP code is valid");
+            } else if (result == OtpCode.ValidationResult.EXPIRED) {
+                response.put("message", "OTP code has expired");
             } else {
-                response.put("message", "OTP code is invalid or expired");
+                response.put("message", "OTP code is invalid or already used");
             }
             sendJsonResponse(exchange, 200, response);
         } catch (Exception e) {
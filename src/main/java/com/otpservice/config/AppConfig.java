@@ -1,9 +1,12 @@
 package com.otpservice.config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.otpservice.model.OtpCode;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.EnumSet;
 import java.util.Properties;
+import java.util.Set;
 public class AppConfig {
     private static final Logger logger = LoggerFactory.getLogger(AppConfig.class);
     private static final Properties properties = new Properties();
@@ -25,12 +28,173 @@ public class AppConfig {
     public static long getJwtExpiration() {
         return Long.parseLong(properties.getProperty("jwt.expiration", "86400000"));
     }
+    public static boolean isJwtCacheEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("jwt.cache.enabled", "true"));
+    }
+    public static int getJwtCacheMaxSize() {
+        return Integer.parseInt(properties.getProperty("jwt.cache.max.size", "10000"));
+    }
+    public static int getUserCacheMaxSize() {
+        return Integer.parseInt(properties.getProperty("user.cache.max.size", "10000"));
+    }
+    public static long getUserCacheTtlMs() {
+        return Long.parseLong(properties.getProperty("user.cache.ttl.ms", "300000"));
+    }
     public static int getDefaultOtpLength() {
         return Integer.parseInt(properties.getProperty("otp.default.length", "6"));
     }
     public static int getDefaultOtpExpirationMs() {
         return Integer.parseInt(properties.getProperty("otp.default.expiration", "300000"));
     }
+    public static long getOtpConfigVersionCheckIntervalMs() {
+        return Long.parseLong(properties.getProperty("otp.config.version.check.interval.ms", "30000"));
+    }
+    public static boolean isOtpActiveStoreEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("otp.active.store.enabled", "true"));
+    }
+    public static int getOtpActiveStoreMaxSize() {
+        return Integer.parseInt(properties.getProperty("otp.active.store.max.size", "100000"));
+    }
+    public static int getOtpExpiryBatchSize() {
+        return Integer.parseInt(properties.getProperty("otp.expiry.batch.size", "500"));
+    }
+    public static int getOtpExpiryQueueMaxSize() {
+        return Integer.parseInt(properties.getProperty("otp.expiry.queue.max.size", "1000000"));
+    }
+    public static int getOtpExpirationSweepIntervalSeconds() {
+        return Integer.parseInt(properties.getProperty("otp.expiration.sweep.interval.seconds", "900"));
+    }
+    public static int getMaintenanceBatchSize() {
+        return Integer.parseInt(properties.getProperty("maintenance.batch.size", "1000"));
+    }
+    public static int getMaintenanceMaxRowsPerSecond() {
+        return Integer.parseInt(properties.getProperty("maintenance.max.rows.per.second", "5000"));
+    }
+    public static boolean isOtpPartitioningEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("db.otp.partitioning.enabled", "false"));
+    }
+    public static int getOtpPartitionPremakeDays() {
+        return Integer.parseInt(properties.getProperty("db.otp.partitions.premake.days", "3"));
+    }
+    public static int getOtpPartitionRetentionDays() {
+        return Integer.parseInt(properties.getProperty("db.otp.partitions.retention.days", "30"));
+    }
+    public static String getOtpPartitionRetentionAction() {
+        return properties.getProperty("db.otp.partitions.retention.action", "drop");
+    }
+    public static boolean isOtpArchiveEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("otp.archive.enabled", "false"));
+    }
+    public static String getOtpArchiveDir() {
+        return properties.getProperty("otp.archive.dir", "otp_archive");
+    }
+    public static int getOtpArchiveMinAgeHours() {
+        return Integer.parseInt(properties.getProperty("otp.archive.min.age.hours", "24"));
+    }
+    public static int getOtpArchiveRetentionDays() {
+        return Integer.parseInt(properties.getProperty("otp.archive.retention.days", "90"));
+    }
+    public static int getOtpArchiveSegmentMaxRows() {
+        return Integer.parseInt(properties.getProperty("otp.archive.segment.max.rows", "100000"));
+    }
+    public static long getOtpArchiveIntervalMinutes() {
+        return Long.parseLong(properties.getProperty("otp.archive.interval.minutes", "60"));
+    }
+    public static String getOtpMode() {
+        return properties.getProperty("otp.mode", "table");
+    }
+    public static String getOtpTotpMasterKey() {
+        return properties.getProperty("otp.totp.master.key");
+    }
+    public static int getOtpTotpDriftSteps() {
+        return Integer.parseInt(properties.getProperty("otp.totp.drift.steps", "1"));
+    }
+    public static String getOtpChallengeKey() {
+        return properties.getProperty("otp.challenge.key");
+    }
+    public static int getOtpChallengeConsumedMaxSize() {
+        return Integer.parseInt(properties.getProperty("otp.challenge.consumed.max.size", "100000"));
+    }
+    public static String getDeliveryMode() {
+        return properties.getProperty("delivery.mode", "sync");
+    }
+    public static int getDeliveryThreads(OtpCode.DeliveryChannel channel) {
+        return Integer.parseInt(getDeliveryProperty(channel, "threads", "4"));
+    }
+    public static int getDeliveryQueueCapacity(OtpCode.DeliveryChannel channel) {
+        return Integer.parseInt(getDeliveryProperty(channel, "queue.capacity", "1000"));
+    }
+    public static String getDeliveryRejectionPolicy(OtpCode.DeliveryChannel channel) {
+        return getDeliveryProperty(channel, "rejection.policy", "reject");
+    }
+    private static String getDeliveryProperty(OtpCode.DeliveryChannel channel, String name, String defaultValue) {
+        String value = properties.getProperty("delivery." + channel.name().toLowerCase() + "." + name);
+        return value != null ? value : properties.getProperty("delivery.default." + name, defaultValue);
+    }
+    /**
+     * @return Резервный канал для канала доставки (delivery.<канал>.fallback) или null
+     */
+    public static OtpCode.DeliveryChannel getDeliveryFallbackChannel(OtpCode.DeliveryChannel channel) {
+        String value = properties.getProperty("delivery." + channel.name().toLowerCase() + ".fallback");
+        return value == null || value.isBlank() ? null : OtpCode.DeliveryChannel.valueOf(value.trim().toUpperCase());
+    }
+    /**
+     * @return Каналы доставки, которые подготавливаются при старте и учитываются в /health/ready
+     */
+    public static Set<OtpCode.DeliveryChannel> getDeliveryChannels() {
+        Set<OtpCode.DeliveryChannel> channels = EnumSet.noneOf(OtpCode.DeliveryChannel.class);
+        for (String value : properties.getProperty("delivery.channels", "EMAIL,SMS,TELEGRAM,FILE").split(",")) {
+            if (!value.isBlank()) {
+                channels.add(OtpCode.DeliveryChannel.valueOf(value.trim().toUpperCase()));
+            }
+        }
+        return channels;
+    }
+    public static long getDeliveryInitRetrySeconds() {
+        return Long.parseLong(properties.getProperty("delivery.init.retry.seconds", "30"));
+    }
+    public static boolean isDeliveryBreakerEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("delivery.breaker.enabled", "true"));
+    }
+    public static int getDeliveryBreakerWindowSize() {
+        return Integer.parseInt(properties.getProperty("delivery.breaker.window.size", "20"));
+    }
+    public static int getDeliveryBreakerMinCalls() {
+        return Integer.parseInt(properties.getProperty("delivery.breaker.min.calls", "10"));
+    }
+    public static int getDeliveryBreakerFailureRateThreshold() {
+        return Integer.parseInt(properties.getProperty("delivery.breaker.failure.rate.threshold", "50"));
+    }
+    public static long getDeliveryBreakerSlowCallMs() {
+        return Long.parseLong(properties.getProperty("delivery.breaker.slow.call.ms", "5000"));
+    }
+    public static int getDeliveryBreakerSlowCallRateThreshold() {
+        return Integer.parseInt(properties.getProperty("delivery.breaker.slow.call.rate.threshold", "80"));
+    }
+    public static long getDeliveryBreakerOpenMs() {
+        return Long.parseLong(properties.getProperty("delivery.breaker.open.ms", "30000"));
+    }
+    public static int getDeliveryBreakerHalfOpenCalls() {
+        return Integer.parseInt(properties.getProperty("delivery.breaker.half.open.calls", "3"));
+    }
+    public static int getOutboxWorkers() {
+        return Integer.parseInt(properties.getProperty("delivery.outbox.workers", "2"));
+    }
+    public static int getOutboxBatchSize() {
+        return Integer.parseInt(properties.getProperty("delivery.outbox.batch.size", "50"));
+    }
+    public static long getOutboxPollIntervalMs() {
+        return Long.parseLong(properties.getProperty("delivery.outbox.poll.interval.ms", "500"));
+    }
+    public static int getOutboxMaxAttempts() {
+        return Integer.parseInt(properties.getProperty("delivery.outbox.max.attempts", "5"));
+    }
+    public static long getOutboxBackoffBaseMs() {
+        return Long.parseLong(properties.getProperty("delivery.outbox.backoff.base.ms", "1000"));
+    }
+    public static long getOutboxBackoffMaxMs() {
+        return Long.parseLong(properties.getProperty("delivery.outbox.backoff.max.ms", "60000"));
+    }
     public static String getMailSmtpHost() {
         return properties.getProperty("mail.smtp.host");
     }
@@ -43,6 +207,30 @@ public class AppConfig {
     public static boolean getMailSmtpStartTlsEnable() {
         return Boolean.parseBoolean(properties.getProperty("mail.smtp.starttls.enable", "true"));
     }
+    public static int getMailSmtpTimeoutMs() {
+        return Integer.parseInt(properties.getProperty("mail.smtp.timeout.ms", "10000"));
+    }
+    public static int getMailSmtpPoolSize() {
+        return Integer.parseInt(properties.getProperty("mail.smtp.pool.size", "4"));
+    }
+    public static int getMailSmtpPoolMaxMessagesPerConnection() {
+        return Integer.parseInt(properties.getProperty("mail.smtp.pool.max.messages.per.connection", "100"));
+    }
+    public static long getMailSmtpPoolValidateAfterIdleMs() {
+        return Long.parseLong(properties.getProperty("mail.smtp.pool.validate.after.idle.ms", "30000"));
+    }
+    public static long getMailSmtpPoolBorrowTimeoutMs() {
+        return Long.parseLong(properties.getProperty("mail.smtp.pool.borrow.timeout.ms", "5000"));
+    }
+    public static boolean isMailBatchEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("mail.batch.enabled", "false"));
+    }
+    public static int getMailBatchMaxSize() {
+        return Integer.parseInt(properties.getProperty("mail.batch.max.size", "50"));
+    }
+    public static long getMailBatchLingerMs() {
+        return Long.parseLong(properties.getProperty("mail.batch.linger.ms", "5"));
+    }
     public static String getMailUsername() {
         return properties.getProperty("mail.username");
     }
@@ -55,12 +243,77 @@ public class AppConfig {
     public static String getTelegramBotToken() {
         return properties.getProperty("telegram.bot.token");
     }
+    public static String getFileDeliveryDir() {
+        return properties.getProperty("file.delivery.dir", "otp_files");
+    }
+    public static String getFileDeliveryFsync() {
+        return properties.getProperty("file.delivery.fsync", "interval");
+    }
+    public static long getFileDeliveryFsyncIntervalMs() {
+        return Long.parseLong(properties.getProperty("file.delivery.fsync.interval.ms", "1000"));
+    }
+    public static int getFileDeliveryMaxOpenFiles() {
+        return Integer.parseInt(properties.getProperty("file.delivery.max.open.files", "256"));
+    }
+    public static long getFileDeliveryAwaitMs() {
+        return Long.parseLong(properties.getProperty("file.delivery.await.ms", "5000"));
+    }
+    public static String getTelegramBotApiUrl() {
+        return properties.getProperty("telegram.bot.api.url", "https://api.telegram.org/bot");
+    }
+    public static int getTelegramSendThreads() {
+        return Integer.parseInt(properties.getProperty("telegram.send.threads", "4"));
+    }
+    public static double getTelegramRateGlobalPerSecond() {
+        return Double.parseDouble(properties.getProperty("telegram.rate.global.per.second", "30"));
+    }
+    public static int getTelegramRateGlobalBurst() {
+        return Integer.parseInt(properties.getProperty("telegram.rate.global.burst", "30"));
+    }
+    public static double getTelegramRateChatPerSecond() {
+        return Double.parseDouble(properties.getProperty("telegram.rate.chat.per.second", "1"));
+    }
+    public static int getTelegramRateChatBurst() {
+        return Integer.parseInt(properties.getProperty("telegram.rate.chat.burst", "1"));
+    }
+    public static int getTelegramSendQueueCapacity() {
+        return Integer.parseInt(properties.getProperty("telegram.send.queue.capacity", "10000"));
+    }
+    public static int getTelegramSendMaxRetries() {
+        return Integer.parseInt(properties.getProperty("telegram.send.max.retries", "3"));
+    }
+    public static long getTelegramSendAwaitMs() {
+        return Long.parseLong(properties.getProperty("telegram.send.await.ms", "3000"));
+    }
     public static String getServerHost() {
         return properties.getProperty("server.host", "localhost");
     }
     public static int getServerPort() {
         return Integer.parseInt(properties.getProperty("server.port", "8080"));
     }
+    public static String getServerEngine() {
+        return properties.getProperty("server.engine", "jdk");
+    }
+    public static int getServerNioIoThreads() {
+        return Integer.parseInt(properties.getProperty("server.nio.io.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+    public static long getServerNioIdleTimeoutMs() {
+        return Long.parseLong(properties.getProperty("server.nio.idle.timeout.ms", "30000"));
+    }
+    public static int getServerNioMaxRequestBytes() {
+        return Integer.parseInt(properties.getProperty("server.nio.max.request.bytes", "1048576"));
+    }
+    public static String getServerExecutorMode() {
+        return properties.getProperty("server.executor.mode", "fixed");
+    }
+    public static int getServerExecutorThreads() {
+        return Integer.parseInt(properties.getProperty("server.executor.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors() * 4)));
+    }
+    public static int getServerExecutorQueueCapacity() {
+        return Integer.parseInt(properties.getProperty("server.executor.queue.capacity", "0"));
+    }
     public static String getProperty(String key) {
         return properties.getProperty(key);
     }
@@ -0,0 +1,301 @@
+package com.otpservice.config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Пул соединений с базой данных.
+ * Общее число выданных соединений ограничено честным семафором (ожидающие обслуживаются по очереди),
+ * простаивающие соединения проверяются перед выдачей, старые соединения пересоздаются,
+ * лишние простаивающие закрываются, а слишком долго удерживаемые соединения логируются как утечки.
+ */
+final class ConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+    private static final long HOUSEKEEPING_PERIOD_MS = 30_000;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final PoolSettings settings;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "db-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean shutdown;
+    ConnectionPool(String url, String username, String password, PoolSettings settings) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize, true);
+        housekeeper.execute(this::fillMinIdle);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_PERIOD_MS, HOUSEKEEPING_PERIOD_MS,
+                TimeUnit.MILLISECONDS);
+        logger.info("Database connection pool created: maxSize={}, minIdle={}, maxLifetime={} ms, idleTimeout={} ms, "
+                + "statementCacheSize={}", settings.maxSize, settings.minIdle, settings.maxLifetimeMs,
+                settings.idleTimeoutMs, settings.statementCacheSize);
+    }
+    /**
+     * Выдает соединение, ожидая освобождения не дольше connectionTimeoutMs
+     *
+     * @return Логическое соединение; close() возвращает его в пул
+     * @throws SQLException если пул исчерпан или не удалось открыть соединение
+     */
+    Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool is shut down");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.connectionTimeoutMs);
+        try {
+            if (!permits.tryAcquire(settings.connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException("Connection pool exhausted: no connection available within "
+                        + settings.connectionTimeoutMs + " ms (active=" + borrowedConnections.size()
+                        + ", waiters=" + permits.getQueueLength() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            PooledConnection pooled = acquirePhysical(deadline);
+            recordWait(System.nanoTime() - start);
+            pooled.markBorrowed(settings.leakDetectionThresholdMs > 0);
+            borrowedConnections.add(pooled);
+            borrowCount.increment();
+            return new ConnectionWrapper(this, pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    /**
+     * Возвращает соединение в пул (вызывается из ConnectionWrapper.close)
+     */
+    void release(PooledConnection pooled) {
+        borrowedConnections.remove(pooled);
+        try {
+            if (shutdown || pooled.isExpired(settings.maxLifetimeMs) || !pooled.resetState()) {
+                closePhysical(pooled);
+            } else {
+                pooled.markReturned();
+                idleConnections.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+    /**
+     * Закрывает все соединения и останавливает обслуживание пула
+     */
+    void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            closePhysical(pooled);
+        }
+        for (PooledConnection borrowed : borrowedConnections) {
+            logger.warn("Closing connection still in use at shutdown");
+            closePhysical(borrowed);
+        }
+        borrowedConnections.clear();
+    }
+    /**
+     * @return Текущее состояние пула и накопленная статистика ожиданий
+     */
+    Map<String, Object> getStats() {
+        long borrows = borrowCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", totalConnections.get());
+        stats.put("active", borrowedConnections.size());
+        stats.put("idle", idleConnections.size());
+        stats.put("waiters", permits.getQueueLength());
+        stats.put("maxSize", settings.maxSize);
+        stats.put("minIdle", settings.minIdle);
+        stats.put("borrows", borrows);
+        stats.put("timeouts", timeoutCount.sum());
+        stats.put("created", createdCount.sum());
+        stats.put("closed", closedCount.sum());
+        stats.put("avgWaitMs", borrows == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / borrows);
+        stats.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+    /**
+     * Берет простаивающее соединение (проверяя его) либо открывает новое, если лимит позволяет
+     */
+    private PooledConnection acquirePhysical(long deadlineNanos) throws SQLException {
+        while (true) {
+            PooledConnection pooled = idleConnections.pollFirst();
+            if (pooled != null) {
+                if (isUsable(pooled)) {
+                    return pooled;
+                }
+                closePhysical(pooled);
+                continue;
+            }
+            if (reserveSlot()) {
+                try {
+                    return openPhysical();
+                } catch (SQLException e) {
+                    totalConnections.decrementAndGet();
+                    throw e;
+                }
+            }
+            long remaining = deadlineNanos - System.nanoTime();
+            try {
+                pooled = idleConnections.pollFirst(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (pooled == null) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException("Timed out waiting for an idle database connection");
+            }
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            closePhysical(pooled);
+        }
+    }
+    private boolean isUsable(PooledConnection pooled) {
+        if (pooled.isExpired(settings.maxLifetimeMs)) {
+            return false;
+        }
+        if (pooled.idleMillis() < settings.validateAfterIdleMs) {
+            return true;
+        }
+        try {
+            boolean valid = pooled.getConnection().isValid(settings.validationTimeoutSeconds);
+            if (!valid) {
+                logger.warn("Discarding invalid database connection");
+            }
+            return valid;
+        } catch (SQLException e) {
+            logger.warn("Error validating database connection: {}", e.getMessage());
+            return false;
+        }
+    }
+    private boolean reserveSlot() {
+        while (true) {
+            int current = totalConnections.get();
+            if (current >= settings.maxSize) {
+                return false;
+            }
+            if (totalConnections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    private PooledConnection openPhysical() throws SQLException {
+        logger.debug("Creating new database connection");
+        Connection connection = DriverManager.getConnection(url, username, password);
+        createdCount.increment();
+        return new PooledConnection(connection, settings.statementCacheSize);
+    }
+    private void closePhysical(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        closedCount.increment();
+        pooled.closePhysical();
+    }
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+    /**
+     * Периодическое обслуживание: закрытие старых и лишних простаивающих соединений,
+     * пополнение до minIdle и поиск утечек
+     */
+    private void housekeep() {
+        try {
+            for (PooledConnection pooled : idleConnections) {
+                boolean expired = pooled.isExpired(settings.maxLifetimeMs);
+                boolean surplusIdle = pooled.idleMillis() > settings.idleTimeoutMs
+                        && totalConnections.get() > settings.minIdle;
+                if ((expired || surplusIdle) && idleConnections.remove(pooled)) {
+                    logger.debug("Retiring {} database connection", expired ? "expired" : "idle");
+                    closePhysical(pooled);
+                }
+            }
+            fillMinIdle();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            logger.error("Error during connection pool housekeeping", e);
+        }
+    }
+    private void fillMinIdle() {
+        while (!shutdown && idleConnections.size() < settings.minIdle && reserveSlot()) {
+            try {
+                idleConnections.offerLast(openPhysical());
+            } catch (SQLException e) {
+                totalConnections.decrementAndGet();
+                logger.warn("Could not pre-create database connection: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+    private void detectLeaks() {
+        if (settings.leakDetectionThresholdMs <= 0) {
+            return;
+        }
+        for (PooledConnection pooled : borrowedConnections) {
+            if (pooled.borrowedMillis() > settings.leakDetectionThresholdMs && pooled.markLeakReported()) {
+                logger.warn("Possible connection leak: connection held for {} ms",
+                        pooled.borrowedMillis(), pooled.getBorrowTrace());
+            }
+        }
+    }
+    /**
+     * Параметры пула
+     */
+    static final class PoolSettings {
+        final int maxSize;
+        final int minIdle;
+        final long connectionTimeoutMs;
+        final long maxLifetimeMs;
+        final long idleTimeoutMs;
+        final long leakDetectionThresholdMs;
+        final long validateAfterIdleMs;
+        final int validationTimeoutSeconds;
+        final int statementCacheSize;
+        PoolSettings(int maxSize, int minIdle, long connectionTimeoutMs, long maxLifetimeMs, long idleTimeoutMs,
+                     long leakDetectionThresholdMs, long validateAfterIdleMs, int validationTimeoutSeconds,
+                     int statementCacheSize) {
+            this.maxSize = maxSize;
+            this.minIdle = Math.min(minIdle, maxSize);
+            this.connectionTimeoutMs = connectionTimeoutMs;
+            this.maxLifetimeMs = maxLifetimeMs;
+            this.idleTimeoutMs = idleTimeoutMs;
+            this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+            this.validateAfterIdleMs = validateAfterIdleMs;
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            this.statementCacheSize = statementCacheSize;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.otpservice.config;
+import java.sql.Connection;
+import java.sql.SQLException;
+/**
+ * Логическое соединение, выданное пулом: close() возвращает физическое соединение в пул
+ */
+final class ConnectionWrapper implements Connection {
+    private final ConnectionPool pool;
+    private final PooledConnection pooled;
+    private final Connection wrappedConnection;
+    private boolean isClosed;
+    ConnectionWrapper(ConnectionPool pool, PooledConnection pooled) {
+        this.pool = pool;
+        this.pooled = pooled;
+        this.wrappedConnection = pooled.getConnection();
+        this.isClosed = false;
+    }
+    /**
+     * @return Физическое соединение, если логическое еще не закрыто
+     * @throws SQLException если соединение уже возвращено в пул
+     */
+    private Connection delegate() throws SQLException {
+        if (isClosed) {
+            throw new SQLException("Connection has already been returned to the pool");
+        }
+        return wrappedConnection;
+    }
+    @Override
+    public void close() throws SQLException {
+        if (!isClosed) {
+            isClosed = true;
+            pool.release(pooled);
+        }
+    }
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return delegate().unwrap(iface);
+    }
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return delegate().isWrapperFor(iface);
+    }
+    @Override
+    public java.sql.Statement createStatement() throws SQLException {
+        return delegate().createStatement();
+    }
+    /**
+     * Берет выражение из кэша физического соединения; close() выражения вернет его в кэш
+     */
+    @Override
+    public java.sql.PreparedStatement prepareStatement(String sql) throws SQLException {
+        return pooled.getStatementCache().prepare(this, delegate(), sql);
+    }
+    @Override
+    public java.sql.CallableStatement prepareCall(String sql) throws SQLException {
+        return delegate().prepareCall(sql);
+    }
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        return delegate().nativeSQL(sql);
+    }
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        delegate().setAutoCommit(autoCommit);
+    }
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return delegate().getAutoCommit();
+    }
+    @Override
+    public void commit() throws SQLException {
+        delegate().commit();
+    }
+    @Override
+    public void rollback() throws SQLException {
+        delegate().rollback();
+    }
+    @Override
+    public boolean isClosed() throws SQLException {
+        return isClosed || wrappedConnection.isClosed();
+    }
+    @Override
+    public java.sql.DatabaseMetaData getMetaData() throws SQLException {
+        return delegate().getMetaData();
+    }
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        delegate().setReadOnly(readOnly);
+    }
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        return delegate().isReadOnly();
+    }
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        delegate().setCatalog(catalog);
+    }
+    @Override
+    public String getCatalog() throws SQLException {
+        return delegate().getCatalog();
+    }
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        delegate().setTransactionIsolation(level);
+    }
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return delegate().getTransactionIsolation();
+    }
+    @Override
+    public java.sql.SQLWarning getWarnings() throws SQLException {
+        return delegate().getWarnings();
+    }
+    @Override
+    public void clearWarnings() throws SQLException {
+        delegate().clearWarnings();
+    }
+    @Override
+    public java.sql.Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return delegate().createStatement(resultSetType, resultSetConcurrency);
+    }
+    @Override
+    public java.sql.PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return delegate().prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+    @Override
+    public java.sql.CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return delegate().prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+    @Override
+    public java.util.Map<String, Class<?>> getTypeMap() throws SQLException {
+        return delegate().getTypeMap();
+    }
+    @Override
+    public void setTypeMap(java.util.Map<String, Class<?>> map) throws SQLException {
+        delegate().setTypeMap(map);
+    }
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        delegate().setHoldability(holdability);
+    }
+    @Override
+    public int getHoldability() throws SQLException {
+        return delegate().getHoldability();
+    }
+    @Override
+    public java.sql.Savepoint setSavepoint() throws SQLException {
+        return delegate().setSavepoint();
+    }
+    @Override
+    public java.sql.Savepoint setSavepoint(String name) throws SQLException {
+        return delegate().setSavepoint(name);
+    }
+    @Override
+    public void rollback(java.sql.Savepoint savepoint) throws SQLException {
+        delegate().rollback(savepoint);
+    }
+    @Override
+    public void releaseSavepoint(java.sql.Savepoint savepoint) throws SQLException {
+        delegate().releaseSavepoint(savepoint);
+    }
+    @Override
+    public java.sql.Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return delegate().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+    @Override
+    public java.sql.PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return delegate().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+    @Override
+    public java.sql.CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return delegate().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+    @Override
+    public java.sql.PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return delegate().prepareStatement(sql, autoGeneratedKeys);
+    }
+    @Override
+    public java.sql.PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return delegate().prepareStatement(sql, columnIndexes);
+    }
+    @Override
+    public java.sql.PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return delegate().prepareStatement(sql, columnNames);
+    }
+    @Override
+    public java.sql.Clob createClob() throws SQLException {
+        return delegate().createClob();
+    }
+    @Override
+    public java.sql.Blob createBlob() throws SQLException {
+        return delegate().createBlob();
+    }
+    @Override
+    public java.sql.NClob createNClob() throws SQLException {
+        return delegate().createNClob();
+    }
+    @Override
+    public java.sql.SQLXML createSQLXML() throws SQLException {
+        return delegate().createSQLXML();
+    }
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        return delegate().isValid(timeout);
+    }
+    @Override
+    public void setClientInfo(String name, String value) throws java.sql.SQLClientInfoException {
+        wrappedConnection.setClientInfo(name, value);
+    }
+    @Override
+    public void setClientInfo(java.util.Properties properties) throws java.sql.SQLClientInfoException {
+        wrappedConnection.setClientInfo(properties);
+    }
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        return delegate().getClientInfo(name);
+    }
+    @Override
+    public java.util.Properties getClientInfo() throws SQLException {
+        return delegate().getClientInfo();
+    }
+    @Override
+    public java.sql.Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return delegate().createArrayOf(typeName, elements);
+    }
+    @Override
+    public java.sql.Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return delegate().createStruct(typeName, attributes);
+    }
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        delegate().setSchema(schema);
+    }
+    @Override
+    public String getSchema() throws SQLException {
+        return delegate().getSchema();
+    }
+    @Override
+    public void abort(java.util.concurrent.Executor executor) throws SQLException {
+        delegate().abort(executor);
+    }
+    @Override
+    public void setNetworkTimeout(java.util.concurrent.Executor executor, int milliseconds) throws SQLException {
+        delegate().setNetworkTimeout(executor, milliseconds);
+    }
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return delegate().getNetworkTimeout();
+    }
+} 
\ No newline at end of file
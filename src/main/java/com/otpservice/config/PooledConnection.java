@@ -0,0 +1,92 @@
+package com.otpservice.config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+/**
+ * Физическое соединение пула и его служебные метаданные
+ */
+final class PooledConnection {
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnection.class);
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final long createdAtMillis;
+    private volatile long lastReturnedMillis;
+    private volatile long borrowedAtMillis;
+    private volatile Throwable borrowTrace;
+    private volatile boolean leakReported;
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statementCache = new StatementCache(statementCacheSize);
+        this.createdAtMillis = System.currentTimeMillis();
+        this.lastReturnedMillis = createdAtMillis;
+    }
+    Connection getConnection() {
+        return connection;
+    }
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+    boolean isExpired(long maxLifetimeMs) {
+        return maxLifetimeMs > 0 && System.currentTimeMillis() - createdAtMillis > maxLifetimeMs;
+    }
+    long idleMillis() {
+        return System.currentTimeMillis() - lastReturnedMillis;
+    }
+    long borrowedMillis() {
+        return System.currentTimeMillis() - borrowedAtMillis;
+    }
+    Throwable getBorrowTrace() {
+        return borrowTrace;
+    }
+    void markBorrowed(boolean captureTrace) {
+        borrowedAtMillis = System.currentTimeMillis();
+        borrowTrace = captureTrace ? new Exception("Connection borrowed here") : null;
+        leakReported = false;
+    }
+    void markReturned() {
+        lastReturnedMillis = System.currentTimeMillis();
+        borrowTrace = null;
+    }
+    /**
+     * @return true, если о возможной утечке еще не сообщалось
+     */
+    boolean markLeakReported() {
+        if (leakReported) {
+            return false;
+        }
+        leakReported = true;
+        return true;
+    }
+    /**
+     * Приводит соединение к исходному состоянию перед возвратом в пул
+     *
+     * @return false, если соединение неисправно и его нужно закрыть
+     */
+    boolean resetState() {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            logger.warn("Error resetting database connection state: {}", e.getMessage());
+            return false;
+        }
+    }
+    void closePhysical() {
+        statementCache.clear();
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            logger.error("Error closing database connection", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.otpservice.config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * LRU-кэш подготовленных выражений одного физического соединения, ключ - текст SQL.
+ * Выданное выражение удаляется из кэша на время использования, а логический close() возвращает его обратно,
+ * поэтому план, подготовленный на сервере, переиспользуется между запросами.
+ * Соединение в каждый момент используется одним потоком, поэтому кэш не синхронизирован.
+ */
+final class StatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+    private static final int MAX_TRACKED_SQL = 1000;
+    private static final Map<String, SqlStats> STATS = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+    /**
+     * Возвращает кэшированное выражение или готовит новое на физическом соединении
+     *
+     * @param owner Логическое соединение, которое вернет getConnection() выражения
+     * @param physical Физическое соединение
+     * @param sql Текст SQL
+     * @return Выражение, у которого close() возвращает его в кэш
+     * @throws SQLException если не удалось подготовить выражение
+     */
+    PreparedStatement prepare(Connection owner, Connection physical, String sql) throws SQLException {
+        if (maxSize <= 0) {
+            return physical.prepareStatement(sql);
+        }
+        PreparedStatement statement = statements.remove(sql);
+        if (statement != null && !statement.isClosed()) {
+            record(sql, true);
+        } else {
+            record(sql, false);
+            statement = physical.prepareStatement(sql);
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new CachedStatementHandler(this, owner, sql, statement)
+        );
+    }
+    /**
+     * Забывает все выражения (физическое соединение закрывается вместе с ними)
+     */
+    void clear() {
+        statements.clear();
+    }
+    /**
+     * @return Статистика попаданий по каждому тексту SQL
+     */
+    static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, SqlStats> entry : STATS.entrySet()) {
+            long hits = entry.getValue().hits.sum();
+            long misses = entry.getValue().misses.sum();
+            Map<String, Object> sqlStats = new LinkedHashMap<>();
+            sqlStats.put("hits", hits);
+            sqlStats.put("misses", misses);
+            sqlStats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            stats.put(entry.getKey(), sqlStats);
+        }
+        return stats;
+    }
+    private void giveBack(String sql, PreparedStatement statement) {
+        if (statements.containsKey(sql)) {
+            closeQuietly(statement);
+            return;
+        }
+        statements.put(sql, statement);
+        if (statements.size() > maxSize) {
+            Iterator<PreparedStatement> eldest = statements.values().iterator();
+            closeQuietly(eldest.next());
+            eldest.remove();
+        }
+    }
+    private static void record(String sql, boolean hit) {
+        SqlStats stats = STATS.get(sql);
+        if (stats == null) {
+            if (STATS.size() >= MAX_TRACKED_SQL) {
+                return;
+            }
+            stats = STATS.computeIfAbsent(sql, key -> new SqlStats());
+        }
+        (hit ? stats.hits : stats.misses).increment();
+    }
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("Error closing cached statement", e);
+        }
+    }
+    private static final class SqlStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+    /**
+     * Перехватывает close() выражения: вместо закрытия очищает параметры и возвращает его в кэш
+     */
+    private static final class CachedStatementHandler implements InvocationHandler {
+        private final StatementCache cache;
+        private final Connection owner;
+        private final String sql;
+        private final PreparedStatement statement;
+        private ResultSet lastResultSet;
+        private boolean closed;
+        CachedStatementHandler(StatementCache cache, Connection owner, String sql, PreparedStatement statement) {
+            this.cache = cache;
+            this.owner = owner;
+            this.sql = sql;
+            this.statement = statement;
+        }
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    logicalClose();
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + sql + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                Object result = method.invoke(statement, args);
+                if (result instanceof ResultSet) {
+                    lastResultSet = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        private void logicalClose() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (lastResultSet != null) {
+                    lastResultSet.close();
+                    lastResultSet = null;
+                }
+                if (statement.isClosed()) {
+                    return;
+                }
+                statement.clearParameters();
+                statement.clearWarnings();
+                cache.giveBack(sql, statement);
+            } catch (SQLException e) {
+                logger.debug("Discarding statement that could not be reset", e);
+                closeQuietly(statement);
+            }
+        }
+    }
+} 
\ No newline at end of file
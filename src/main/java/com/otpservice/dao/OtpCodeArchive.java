@@ -0,0 +1,372 @@
+package com.otpservice.dao;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.otpservice.config.AppConfig;
+import com.otpservice.model.OtpCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+/**
+ * Архив завершенных OTP кодов в сжатых сегментах на локальном диске.
+ * Сегмент - неизменяемый файл segment-*.json.gz (по одной JSON-записи на код) и небольшой индекс segment-*.idx
+ * со списком user_id и диапазоном created_at. Индексы всех сегментов держатся в памяти,
+ * поэтому поиск по пользователю распаковывает только сегменты, где этот пользователь есть.
+ */
+public class OtpCodeArchive {
+    private static final Logger logger = LoggerFactory.getLogger(OtpCodeArchive.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String DATA_SUFFIX = ".json.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static OtpCodeArchive instance;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean enabled = AppConfig.isOtpArchiveEnabled();
+    private final Path directory = Paths.get(AppConfig.getOtpArchiveDir());
+    private final Map<String, SegmentIndex> segments = new ConcurrentHashMap<>();
+    private final AtomicLong segmentSequence = new AtomicLong();
+    private OtpCodeArchive() {
+        objectMapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (enabled) {
+            loadIndexes();
+        }
+    }
+    /**
+     * Получить экземпляр архива
+     */
+    public static synchronized OtpCodeArchive getInstance() {
+        if (instance == null) {
+            instance = new OtpCodeArchive();
+        }
+        return instance;
+    }
+    public boolean isEnabled() {
+        return enabled;
+    }
+    /**
+     * Открывает новый сегмент для записи. Сегмент становится видимым только после commit().
+     *
+     * @return Писатель сегмента
+     * @throws IOException если не удалось создать файл
+     */
+    public SegmentWriter openSegment() throws IOException {
+        Files.createDirectories(directory);
+        String name = SEGMENT_PREFIX + System.currentTimeMillis() + "-" + segmentSequence.incrementAndGet();
+        return new SegmentWriter(name);
+    }
+    /**
+     * Находит архивные коды пользователя
+     *
+     * @param userId ID пользователя
+     * @return Коды из всех сегментов, где встречается пользователь
+     */
+    public List<OtpCode> findByUserId(Long userId) {
+        List<OtpCode> otpCodes = new ArrayList<>();
+        if (!enabled) {
+            return otpCodes;
+        }
+        for (Map.Entry<String, SegmentIndex> entry : segments.entrySet()) {
+            if (Arrays.binarySearch(entry.getValue().userIds, userId) < 0) {
+                continue;
+            }
+            Path dataFile = directory.resolve(entry.getKey() + DATA_SUFFIX);
+            try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(dataFile)));
+                 MappingIterator<JsonNode> rows = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+                while (rows.hasNext()) {
+                    JsonNode row = rows.next();
+                    if (row.get("userId").asLong() == userId) {
+                        otpCodes.add(toOtpCode(row));
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error reading OTP archive segment {}", dataFile, e);
+                throw new UncheckedIOException("Error reading OTP archive segment " + dataFile, e);
+            }
+        }
+        return otpCodes;
+    }
+    /**
+     * Удаляет сегменты, все записи которых созданы раньше указанного времени
+     *
+     * @param cutoff Граница срока хранения
+     * @return Количество удаленных сегментов
+     */
+    public int deleteSegmentsOlderThan(LocalDateTime cutoff) {
+        int deleted = 0;
+        for (Map.Entry<String, SegmentIndex> entry : segments.entrySet()) {
+            if (!entry.getValue().maxCreatedAt.isBefore(cutoff)) {
+                continue;
+            }
+            segments.remove(entry.getKey());
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey() + INDEX_SUFFIX));
+                Files.deleteIfExists(directory.resolve(entry.getKey() + DATA_SUFFIX));
+                deleted++;
+            } catch (IOException e) {
+                logger.error("Error deleting OTP archive segment {}", entry.getKey(), e);
+            }
+        }
+        return deleted;
+    }
+    /**
+     * @return Количество сегментов и записей в архиве
+     */
+    public Map<String, Object> getStats() {
+        long rows = 0;
+        for (SegmentIndex index : segments.values()) {
+            rows += index.rows;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("segments", segments.size());
+        stats.put("rows", rows);
+        return stats;
+    }
+    /**
+     * Загружает индексы сегментов. Отсутствующий или нечитаемый индекс (например, после сбоя питания)
+     * перестраивается по файлу данных; сегмент с нечитаемыми данными пропускается, а не останавливает запуск.
+     */
+    private void loadIndexes() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + DATA_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - DATA_SUFFIX.length());
+                SegmentIndex index = loadIndex(name);
+                if (index != null) {
+                    segments.put(name, index);
+                }
+            }
+            logger.info("Loaded {} OTP archive segments from {}", segments.size(), directory);
+        } catch (IOException e) {
+            logger.error("Error loading OTP archive indexes from {}", directory, e);
+            throw new UncheckedIOException("Error loading OTP archive indexes", e);
+        }
+    }
+    private SegmentIndex loadIndex(String name) {
+        Path indexFile = directory.resolve(name + INDEX_SUFFIX);
+        if (Files.exists(indexFile)) {
+            try {
+                return readIndex(objectMapper.readTree(indexFile.toFile()));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("OTP archive index {} is unreadable, rebuilding it from segment data", indexFile, e);
+            }
+        }
+        try {
+            SegmentIndex index = rebuildIndex(name);
+            writeIndex(name, index);
+            syncDirectory();
+            logger.info("Rebuilt OTP archive index for segment {}", name);
+            return index;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Skipping unreadable OTP archive segment {}", name, e);
+            return null;
+        }
+    }
+    private SegmentIndex readIndex(JsonNode node) {
+        JsonNode userIdsNode = node.get("userIds");
+        long[] userIds = new long[userIdsNode.size()];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = userIdsNode.get(i).asLong();
+        }
+        return new SegmentIndex(node.get("rows").asLong(), LocalDateTime.parse(node.get("minCreatedAt").asText()),
+                LocalDateTime.parse(node.get("maxCreatedAt").asText()), userIds);
+    }
+    private SegmentIndex rebuildIndex(String name) throws IOException {
+        Path dataFile = directory.resolve(name + DATA_SUFFIX);
+        TreeSet<Long> userIds = new TreeSet<>();
+        LocalDateTime minCreatedAt = null;
+        LocalDateTime maxCreatedAt = null;
+        long rows = 0;
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(dataFile)));
+             MappingIterator<JsonNode> iterator = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+            while (iterator.hasNext()) {
+                JsonNode row = iterator.next();
+                LocalDateTime createdAt = LocalDateTime.parse(row.get("createdAt").asText());
+                userIds.add(row.get("userId").asLong());
+                if (minCreatedAt == null || createdAt.isBefore(minCreatedAt)) {
+                    minCreatedAt = createdAt;
+                }
+                if (maxCreatedAt == null || createdAt.isAfter(maxCreatedAt)) {
+                    maxCreatedAt = createdAt;
+                }
+                rows++;
+            }
+        }
+        if (rows == 0) {
+            throw new IOException("OTP archive segment " + dataFile + " is empty");
+        }
+        return new SegmentIndex(rows, minCreatedAt, maxCreatedAt, userIds.stream().mapToLong(Long::longValue).toArray());
+    }
+    /**
+     * Записывает индекс во временный файл, сбрасывает его на диск и атомарно переименовывает
+     */
+    private void writeIndex(String name, SegmentIndex segmentIndex) throws IOException {
+        ObjectNode index = objectMapper.createObjectNode();
+        index.put("rows", segmentIndex.rows);
+        index.put("minCreatedAt", segmentIndex.minCreatedAt.toString());
+        index.put("maxCreatedAt", segmentIndex.maxCreatedAt.toString());
+        ArrayNode userIdsNode = index.putArray("userIds");
+        for (long userId : segmentIndex.userIds) {
+            userIdsNode.add(userId);
+        }
+        Path tempIndexFile = directory.resolve(name + INDEX_SUFFIX + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempIndexFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(objectMapper.writeValueAsBytes(index));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempIndexFile, directory.resolve(name + INDEX_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+    }
+    /**
+     * Сбрасывает на диск каталог архива, чтобы переименования файлов пережили сбой питания.
+     * На платформах, где каталог нельзя открыть как файл (Windows), ничего не делает.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Cannot sync OTP archive directory {}", directory, e);
+        }
+    }
+    private OtpCode toOtpCode(JsonNode row) {
+        return new OtpCode(
+                row.get("id").asLong(),
+                row.get("userId").asLong(),
+                row.get("operationId").isNull() ? null : row.get("operationId").asText(),
+                row.get("code").asText(),
+                OtpCode.Status.valueOf(row.get("status").asText()),
+                OtpCode.DeliveryChannel.valueOf(row.get("deliveryChannel").asText()),
+                LocalDateTime.parse(row.get("createdAt").asText()),
+                LocalDateTime.parse(row.get("expiresAt").asText())
+        );
+    }
+    /**
+     * Индекс сегмента: число записей, диапазон created_at и отсортированные user_id
+     */
+    private static final class SegmentIndex {
+        private final long rows;
+        private final LocalDateTime minCreatedAt;
+        private final LocalDateTime maxCreatedAt;
+        private final long[] userIds;
+        SegmentIndex(long rows, LocalDateTime minCreatedAt, LocalDateTime maxCreatedAt, long[] userIds) {
+            this.rows = rows;
+            this.minCreatedAt = minCreatedAt;
+            this.maxCreatedAt = maxCreatedAt;
+            this.userIds = userIds;
+        }
+    }
+    /**
+     * Потоковая запись одного сегмента. Данные и индекс пишутся во временные файлы, которые при commit()
+     * сбрасываются на диск и атомарно переименовываются, после чего на диск сбрасывается и каталог;
+     * close() без commit() удаляет временный файл.
+     */
+    public final class SegmentWriter implements Closeable {
+        private final String name;
+        private final Path tempDataFile;
+        private final FileOutputStream fileOut;
+        private final GZIPOutputStream gzipOut;
+        private final JsonGenerator generator;
+        private final TreeSet<Long> userIds = new TreeSet<>();
+        private LocalDateTime minCreatedAt;
+        private LocalDateTime maxCreatedAt;
+        private long rows;
+        private boolean committed;
+        private SegmentWriter(String name) throws IOException {
+            this.name = name;
+            this.tempDataFile = directory.resolve(name + DATA_SUFFIX + TEMP_SUFFIX);
+            this.fileOut = new FileOutputStream(tempDataFile.toFile());
+            this.gzipOut = new GZIPOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            this.generator = objectMapper.getFactory().createGenerator(gzipOut);
+        }
+        /**
+         * Дописывает код в сегмент
+         */
+        public void append(OtpCode otpCode) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", otpCode.getId());
+            generator.writeNumberField("userId", otpCode.getUserId());
+            generator.writeStringField("operationId", otpCode.getOperationId());
+            generator.writeStringField("code", otpCode.getCode());
+            generator.writeStringField("status", otpCode.getStatus().name());
+            generator.writeStringField("deliveryChannel", otpCode.getDeliveryChannel().name());
+            generator.writeStringField("createdAt", otpCode.getCreatedAt().toString());
+            generator.writeStringField("expiresAt", otpCode.getExpiresAt().toString());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            userIds.add(otpCode.getUserId());
+            if (minCreatedAt == null || otpCode.getCreatedAt().isBefore(minCreatedAt)) {
+                minCreatedAt = otpCode.getCreatedAt();
+            }
+            if (maxCreatedAt == null || otpCode.getCreatedAt().isAfter(maxCreatedAt)) {
+                maxCreatedAt = otpCode.getCreatedAt();
+            }
+            rows++;
+        }
+        public long getRows() {
+            return rows;
+        }
+        /**
+         * Сбрасывает сегмент на диск, записывает индекс и делает сегмент видимым для поиска
+         */
+        public void commit() throws IOException {
+            generator.flush();
+            gzipOut.finish();
+            gzipOut.flush();
+            fileOut.getFD().sync();
+            gzipOut.close();
+            Files.move(tempDataFile, directory.resolve(name + DATA_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+            SegmentIndex index = new SegmentIndex(rows, minCreatedAt, maxCreatedAt,
+                    userIds.stream().mapToLong(Long::longValue).toArray());
+            writeIndex(name, index);
+            syncDirectory();
+            segments.put(name, index);
+            committed = true;
+        }
+        @Override
+        public void close() throws IOException {
+            if (committed) {
+                return;
+            }
+            try {
+                generator.close();
+                gzipOut.close();
+            } finally {
+                Files.deleteIfExists(tempDataFile);
+            }
+        }
+    }
+} 
\ No newline at end of file
@@ -3,6 +3,7 @@ import com.otpservice.config.DatabaseConfig;
 import com.otpservice.model.OtpCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,15 +11,29 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 public class OtpCodeDao {
     private static final Logger logger = LoggerFactory.getLogger(OtpCodeDao.class);
     public OtpCode save(OtpCode otpCode) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            return save(connection, otpCode);
+        } catch (SQLException e) {
+            logger.error("Error saving OTP code", e);
+            throw new RuntimeException("Error saving OTP code", e);
+        }
+    }
+    /**
+     * Сохраняет код на переданном соединении (в транзакции вызывающего кода)
+     */
+    public OtpCode save(Connection connection, OtpCode otpCode) throws SQLException {
         String sql = "INSERT INTO otp_codes (user_id, operation_id, code, status, delivery_channel, expires_at) " +
                      "VALUES (?, ?, ?, ?, ?, ?) RETURNING id, created_at";
-        try (Connection connection = DatabaseConfig.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setLong(1, otpCode.getUserId());
             statement.setString(2, otpCode.getOperationId());
             statement.setString(3, otpCode.getCode());
@@ -32,9 +47,6 @@ public class OtpCodeDao {
                 return otpCode;
             }
             throw new SQLException("Failed to insert OTP code, no ID obtained.");
-        } catch (SQLException e) {
-            logger.error("Error saving OTP code", e);
-            throw new RuntimeException("Error saving OTP code", e);
         }
     }
     public Optional<OtpCode> findByOperationIdAndCode(String operationId, String code) {
@@ -55,6 +67,39 @@ public class OtpCodeDao {
             throw new RuntimeException("Error finding OTP code by operation ID and code", e);
         }
     }
+    /**
+     * Атомарно использует активный код одним запросом: действующий код переводится в USED,
+     * просроченный - в EXPIRED. Строка блокируется UPDATE, поэтому из конкурентных попыток
+     * успешной будет только одна.
+     *
+     * @param operationId ID операции
+     * @param code OTP код
+     * @param now Текущее время, с которым сравнивается expires_at
+     * @return Результат использования кода
+     */
+    public OtpCode.ValidationResult consume(String operationId, String code, LocalDateTime now) {
+        String sql = "UPDATE otp_codes SET status = CASE WHEN expires_at > ? THEN ? ELSE ? END " +
+                     "WHERE operation_id = ? AND code = ? AND status = ? RETURNING status";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, Timestamp.valueOf(now));
+            statement.setString(2, OtpCode.Status.USED.name());
+            statement.setString(3, OtpCode.Status.EXPIRED.name());
+            statement.setString(4, operationId);
+            statement.setString(5, code);
+            statement.setString(6, OtpCode.Status.ACTIVE.name());
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next()) {
+                return OtpCode.ValidationResult.NOT_FOUND;
+            }
+            return OtpCode.Status.USED.name().equals(resultSet.getString("status"))
+                    ? OtpCode.ValidationResult.VALID
+                    : OtpCode.ValidationResult.EXPIRED;
+        } catch (SQLException e) {
+            logger.error("Error consuming OTP code", e);
+            throw new RuntimeException("Error consuming OTP code", e);
+        }
+    }
     public void updateStatus(Long otpCodeId, OtpCode.Status status) {
         String sql = "UPDATE otp_codes SET status = ? WHERE id = ?";
         try (Connection connection = DatabaseConfig.getConnection();
@@ -67,22 +112,71 @@ public class OtpCodeDao {
             throw new RuntimeException("Error updating OTP code status", e);
         }
     }
-    public void updateExpiredStatuses() {
-        String sql = "UPDATE otp_codes SET status = ? " +
-                     "WHERE status = ? AND expires_at < CURRENT_TIMESTAMP";
+    /**
+     * Меняет статус кода, только если он еще активен
+     *
+     * @param otpCodeId ID кода
+     * @param status Новый статус
+     * @return true, если статус был изменен
+     */
+    public boolean updateStatusIfActive(Long otpCodeId, OtpCode.Status status) {
+        String sql = "UPDATE otp_codes SET status = ? WHERE id = ? AND status = ?";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, status.name());
+            statement.setLong(2, otpCodeId);
+            statement.setString(3, OtpCode.Status.ACTIVE.name());
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            logger.error("Error updating active OTP code status", e);
+            throw new RuntimeException("Error updating active OTP code status", e);
+        }
+    }
+    /**
+     * Переводит в EXPIRED активные коды из списка одним запросом
+     *
+     * @param otpCodeIds ID кодов
+     * @return Количество измененных строк
+     */
+    public int expireByIds(List<Long> otpCodeIds) {
+        String sql = "UPDATE otp_codes SET status = ? WHERE id = ANY(?) AND status = ?";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            Array ids = connection.createArrayOf("bigint", otpCodeIds.toArray());
+            statement.setString(1, OtpCode.Status.EXPIRED.name());
+            statement.setArray(2, ids);
+            statement.setString(3, OtpCode.Status.ACTIVE.name());
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error expiring OTP codes by ID", e);
+            throw new RuntimeException("Error expiring OTP codes by ID", e);
+        }
+    }
+    /**
+     * Переводит в EXPIRED одну пачку просроченных активных кодов.
+     * Строки, заблокированные другими транзакциями (например, проверкой кода), пропускаются.
+     *
+     * @param limit Размер пачки
+     * @return Количество измененных строк
+     */
+    public int updateExpiredStatuses(int limit) {
+        String sql = "UPDATE otp_codes SET status = ? WHERE id IN (" +
+                     "SELECT id FROM otp_codes WHERE status = ? AND expires_at < CURRENT_TIMESTAMP " +
+                     "LIMIT ? FOR UPDATE SKIP LOCKED)";
         try (Connection connection = DatabaseConfig.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, OtpCode.Status.EXPIRED.name());
             statement.setString(2, OtpCode.Status.ACTIVE.name());
-            int updatedRows = statement.executeUpdate();
-            if (updatedRows > 0) {
-                logger.info("Updated {} expired OTP codes", updatedRows);
-            }
+            statement.setInt(3, limit);
+            return statement.executeUpdate();
         } catch (SQLException e) {
             logger.error("Error updating expired OTP codes", e);
             throw new RuntimeException("Error updating expired OTP codes", e);
         }
     }
+    /**
+     * Находит все коды пользователя, включая перенесенные в архив
+     */
     public List<OtpCode> findAllByUserId(Long userId) {
         String sql = "SELECT id, user_id, operation_id, code, status, delivery_channel, created_at, expires_at " +
                      "FROM otp_codes WHERE user_id = ? ORDER BY created_at DESC";
@@ -90,26 +184,115 @@ public class OtpCodeDao {
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setLong(1, userId);
             ResultSet resultSet = statement.executeQuery();
-            List<OtpCode> otpCodes = new ArrayList<>();
+            Map<Long, OtpCode> otpCodesById = new LinkedHashMap<>();
             while (resultSet.next()) {
                 OtpCode otpCode = mapResultSetToOtpCode(resultSet);
-                otpCodes.add(otpCode);
+                otpCodesById.put(otpCode.getId(), otpCode);
             }
+            for (OtpCode archived : OtpCodeArchive.getInstance().findByUserId(userId)) {
+                otpCodesById.putIfAbsent(archived.getId(), archived);
+            }
+            List<OtpCode> otpCodes = new ArrayList<>(otpCodesById.values());
+            otpCodes.sort(Comparator.comparing(OtpCode::getCreatedAt).reversed());
             return otpCodes;
         } catch (SQLException e) {
             logger.error("Error finding all OTP codes by user ID", e);
             throw new RuntimeException("Error finding all OTP codes by user ID", e);
         }
     }
-    public void deleteByUserId(Long userId) {
-        String sql = "DELETE FROM otp_codes WHERE user_id = ?";
+    /**
+     * Находит действующие активные коды, начиная с самых свежих
+     *
+     * @param now Текущее время
+     * @param limit Максимальное количество кодов
+     * @return Список активных кодов
+     */
+    public List<OtpCode> findActive(LocalDateTime now, int limit) {
+        String sql = "SELECT id, user_id, operation_id, code, status, delivery_channel, created_at, expires_at " +
+                     "FROM otp_codes WHERE status = ? AND expires_at > ? ORDER BY expires_at DESC LIMIT ?";
         try (Connection connection = DatabaseConfig.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setLong(1, userId);
-            int deletedRows = statement.executeUpdate();
-            if (deletedRows > 0) {
-                logger.info("Deleted {} OTP codes for user ID {}", deletedRows, userId);
+            statement.setString(1, OtpCode.Status.ACTIVE.name());
+            statement.setTimestamp(2, Timestamp.valueOf(now));
+            statement.setInt(3, limit);
+            ResultSet resultSet = statement.executeQuery();
+            List<OtpCode> otpCodes = new ArrayList<>();
+            while (resultSet.next()) {
+                otpCodes.add(mapResultSetToOtpCode(resultSet));
             }
+            return otpCodes;
+        } catch (SQLException e) {
+            logger.error("Error finding active OTP codes", e);
+            throw new RuntimeException("Error finding active OTP codes", e);
+        }
+    }
+    /**
+     * Читает курсором завершенные коды, созданные раньше cutoff, в порядке id, не загружая их в память целиком
+     *
+     * @param cutoff Граница по created_at
+     * @param afterId Читать коды с id больше этого значения
+     * @param limit Максимальное количество кодов
+     * @param fetchSize Количество строк, получаемых с сервера за раз
+     * @param consumer Обработчик каждого кода
+     */
+    public void streamFinishedBefore(LocalDateTime cutoff, long afterId, int limit, int fetchSize,
+                                     Consumer<OtpCode> consumer) {
+        String sql = "SELECT id, user_id, operation_id, code, status, delivery_channel, created_at, expires_at " +
+                     "FROM otp_codes WHERE status IN (?, ?) AND created_at < ? AND id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setFetchSize(fetchSize);
+                statement.setString(1, OtpCode.Status.USED.name());
+                statement.setString(2, OtpCode.Status.EXPIRED.name());
+                statement.setTimestamp(3, Timestamp.valueOf(cutoff));
+                statement.setLong(4, afterId);
+                statement.setInt(5, limit);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    consumer.accept(mapResultSetToOtpCode(resultSet));
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            logger.error("Error streaming finished OTP codes", e);
+            throw new RuntimeException("Error streaming finished OTP codes", e);
+        }
+    }
+    /**
+     * Удаляет заархивированные коды по списку id
+     *
+     * @param otpCodeIds ID кодов
+     * @return Количество удаленных строк
+     */
+    public int deleteArchived(List<Long> otpCodeIds) {
+        String sql = "DELETE FROM otp_codes WHERE id = ANY(?) AND status IN (?, ?)";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setArray(1, connection.createArrayOf("bigint", otpCodeIds.toArray()));
+            statement.setString(2, OtpCode.Status.USED.name());
+            statement.setString(3, OtpCode.Status.EXPIRED.name());
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error deleting archived OTP codes", e);
+            throw new RuntimeException("Error deleting archived OTP codes", e);
+        }
+    }
+    /**
+     * Удаляет одну пачку OTP кодов пользователя
+     *
+     * @param userId ID пользователя
+     * @param limit Размер пачки
+     * @return Количество удаленных строк
+     */
+    public int deleteByUserId(Long userId, int limit) {
+        String sql = "DELETE FROM otp_codes WHERE id IN (" +
+                     "SELECT id FROM otp_codes WHERE user_id = ? LIMIT ? FOR UPDATE)";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, userId);
+            statement.setInt(2, limit);
+            return statement.executeUpdate();
         } catch (SQLException e) {
             logger.error("Error deleting OTP codes by user ID", e);
             throw new RuntimeException("Error deleting OTP codes by user ID", e);
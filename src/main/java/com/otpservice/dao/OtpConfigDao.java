@@ -12,8 +12,9 @@ import java.util.Optional;
 public class OtpConfigDao {
     private static final Logger logger = LoggerFactory.getLogger(OtpConfigDao.class);
     private static final int CONFIG_ID = 1;
+    public static final String CHANGE_CHANNEL = "otp_config_changed";
     public Optional<OtpConfig> getConfig() {
-        String sql = "SELECT id, length, expiration_time_ms, updated_at FROM otp_config WHERE id = ?";
+        String sql = "SELECT id, length, expiration_time_ms, updated_at, version FROM otp_config WHERE id = ?";
         try (Connection connection = DatabaseConfig.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, CONFIG_ID);
@@ -28,8 +29,30 @@ public class OtpConfigDao {
             throw new RuntimeException("Error getting OTP config", e);
         }
     }
+    /**
+     * Возвращает только версию конфигурации (для дешевой проверки изменений)
+     */
+    public Optional<Long> getVersion() {
+        String sql = "SELECT version FROM otp_config WHERE id = ?";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, CONFIG_ID);
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                return Optional.of(resultSet.getLong("version"));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.error("Error getting OTP config version", e);
+            throw new RuntimeException("Error getting OTP config version", e);
+        }
+    }
+    /**
+     * Обновляет конфигурацию, увеличивает ее версию и уведомляет другие узлы через NOTIFY
+     */
     public void updateConfig(OtpConfig otpConfig) {
-        String sql = "UPDATE otp_config SET length = ?, expiration_time_ms = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        String sql = "UPDATE otp_config SET length = ?, expiration_time_ms = ?, updated_at = CURRENT_TIMESTAMP, " +
+                     "version = version + 1 WHERE id = ?";
         try (Connection connection = DatabaseConfig.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, otpConfig.getLength());
@@ -39,6 +62,7 @@ public class OtpConfigDao {
             if (rowsAffected == 0) {
                 insertDefaultConfig(connection, otpConfig);
             }
+            notifyChange(connection);
         } catch (SQLException e) {
             logger.error("Error updating OTP config", e);
             throw new RuntimeException("Error updating OTP config", e);
@@ -53,11 +77,19 @@ public class OtpConfigDao {
             insertStatement.executeUpdate();
         }
     }
+    private void notifyChange(Connection connection) throws SQLException {
+        try (PreparedStatement notifyStatement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            notifyStatement.setString(1, CHANGE_CHANNEL);
+            notifyStatement.setString(2, String.valueOf(CONFIG_ID));
+            notifyStatement.execute();
+        }
+    }
     private OtpConfig mapResultSetToOtpConfig(ResultSet resultSet) throws SQLException {
         Integer id = resultSet.getInt("id");
         Integer length = resultSet.getInt("length");
         Integer expirationTimeMs = resultSet.getInt("expiration_time_ms");
         LocalDateTime updatedAt = resultSet.getTimestamp("updated_at").toLocalDateTime();
-        return new OtpConfig(id, length, expirationTimeMs, updatedAt);
+        Long version = resultSet.getLong("version");
+        return new OtpConfig(id, length, expirationTimeMs, updatedAt, version);
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.otpservice.dao;
+import com.otpservice.config.DatabaseConfig;
+import com.otpservice.model.OtpCode;
+import com.otpservice.model.OtpOutboxEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Очередь доставки OTP кодов (таблица otp_outbox).
+ * Методы, принимающие Connection, выполняются в транзакции вызывающего кода.
+ */
+public class OtpOutboxDao {
+    private static final Logger logger = LoggerFactory.getLogger(OtpOutboxDao.class);
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_FAILED = "FAILED";
+    /**
+     * Добавляет запись в очередь
+     *
+     * @return ID записи
+     */
+    public Long insert(Connection connection, Long otpCodeId, OtpCode.DeliveryChannel deliveryChannel,
+                       String recipient) throws SQLException {
+        String sql = "INSERT INTO otp_outbox (otp_code_id, delivery_channel, recipient, status) " +
+                     "VALUES (?, ?, ?, ?) RETURNING id";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, otpCodeId);
+            statement.setString(2, deliveryChannel.name());
+            statement.setString(3, recipient);
+            statement.setString(4, STATUS_PENDING);
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                return resultSet.getLong("id");
+            }
+            throw new SQLException("Failed to insert outbox entry, no ID obtained.");
+        }
+    }
+    /**
+     * Захватывает пачку готовых к отправке записей. Записи остаются заблокированными до конца транзакции,
+     * а уже захваченные другими узлами пропускаются.
+     *
+     * @param now Текущее время
+     * @param limit Размер пачки
+     */
+    public List<OtpOutboxEntry> claimDue(Connection connection, LocalDateTime now, int limit) throws SQLException {
+        String sql = "SELECT o.id, o.otp_code_id, o.delivery_channel, o.recipient, o.attempts, " +
+                     "c.code, c.status AS code_status, c.expires_at " +
+                     "FROM otp_outbox o LEFT JOIN otp_codes c ON c.id = o.otp_code_id " +
+                     "WHERE o.status = ? AND o.next_attempt_at <= ? " +
+                     "ORDER BY o.next_attempt_at LIMIT ? FOR UPDATE OF o SKIP LOCKED";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, STATUS_PENDING);
+            statement.setTimestamp(2, Timestamp.valueOf(now));
+            statement.setInt(3, limit);
+            ResultSet resultSet = statement.executeQuery();
+            List<OtpOutboxEntry> entries = new ArrayList<>();
+            while (resultSet.next()) {
+                String codeStatus = resultSet.getString("code_status");
+                Timestamp expiresAt = resultSet.getTimestamp("expires_at");
+                entries.add(new OtpOutboxEntry(
+                        resultSet.getLong("id"),
+                        resultSet.getLong("otp_code_id"),
+                        OtpCode.DeliveryChannel.valueOf(resultSet.getString("delivery_channel")),
+                        resultSet.getString("recipient"),
+                        resultSet.getInt("attempts"),
+                        resultSet.getString("code"),
+                        codeStatus == null ? null : OtpCode.Status.valueOf(codeStatus),
+                        expiresAt == null ? null : expiresAt.toLocalDateTime()
+                ));
+            }
+            return entries;
+        }
+    }
+    /**
+     * Отмечает запись доставленной или окончательно неудачной
+     */
+    public void complete(Connection connection, Long id, String status, String error) throws SQLException {
+        String sql = "UPDATE otp_outbox SET status = ?, attempts = attempts + 1, last_error = ? WHERE id = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, status);
+            statement.setString(2, truncate(error));
+            statement.setLong(3, id);
+            statement.executeUpdate();
+        }
+    }
+    /**
+     * Откладывает запись до следующей попытки
+     */
+    public void reschedule(Connection connection, Long id, LocalDateTime nextAttemptAt, String error) throws SQLException {
+        String sql = "UPDATE otp_outbox SET attempts = attempts + 1, next_attempt_at = ?, last_error = ? WHERE id = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, Timestamp.valueOf(nextAttemptAt));
+            statement.setString(2, truncate(error));
+            statement.setLong(3, id);
+            statement.executeUpdate();
+        }
+    }
+    /**
+     * Удаляет одну пачку завершенных записей старше указанного времени
+     *
+     * @return Количество удаленных строк
+     */
+    public int deleteFinishedBefore(LocalDateTime cutoff, int limit) {
+        String sql = "DELETE FROM otp_outbox WHERE id IN (" +
+                     "SELECT id FROM otp_outbox WHERE status <> ? AND created_at < ? LIMIT ?)";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, STATUS_PENDING);
+            statement.setTimestamp(2, Timestamp.valueOf(cutoff));
+            statement.setInt(3, limit);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error deleting finished outbox entries", e);
+            throw new RuntimeException("Error deleting finished outbox entries", e);
+        }
+    }
+    /**
+     * @return Количество записей в каждом статусе
+     */
+    public Map<String, Long> countByStatus() {
+        String sql = "SELECT status, COUNT(*) AS total FROM otp_outbox GROUP BY status";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            ResultSet resultSet = statement.executeQuery();
+            Map<String, Long> counts = new LinkedHashMap<>();
+            while (resultSet.next()) {
+                counts.put(resultSet.getString("status"), resultSet.getLong("total"));
+            }
+            return counts;
+        } catch (SQLException e) {
+            logger.error("Error counting outbox entries", e);
+            throw new RuntimeException("Error counting outbox entries", e);
+        }
+    }
+    private String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+} 
\ No newline at end of file
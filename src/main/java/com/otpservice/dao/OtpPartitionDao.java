@@ -0,0 +1,150 @@
+package com.otpservice.dao;
+import com.otpservice.config.DatabaseConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * Операции с дневными секциями таблицы otp_codes.
+ * Имена секций строятся только из дат (otp_codes_pYYYYMMDD), поэтому подставляются в DDL напрямую.
+ */
+public class OtpPartitionDao {
+    private static final Logger logger = LoggerFactory.getLogger(OtpPartitionDao.class);
+    private static final String PARTITION_PREFIX = "otp_codes_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String DEFAULT_PARTITION = "otp_codes_default";
+    /**
+     * @return true, если otp_codes - секционированная таблица
+     */
+    public boolean isPartitioned() {
+        String sql = "SELECT relkind FROM pg_class WHERE oid = to_regclass('otp_codes')";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next() && "p".equals(resultSet.getString("relkind"));
+        } catch (SQLException e) {
+            logger.error("Error checking otp_codes partitioning", e);
+            throw new RuntimeException("Error checking otp_codes partitioning", e);
+        }
+    }
+    /**
+     * @return Текущая дата в часовом поясе сессии базы (в нем же вычисляется created_at)
+     */
+    public LocalDate currentDate() {
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT CURRENT_DATE")) {
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getDate(1).toLocalDate();
+        } catch (SQLException e) {
+            logger.error("Error reading current database date", e);
+            throw new RuntimeException("Error reading current database date", e);
+        }
+    }
+    /**
+     * Создает секцию за указанный день, если ее еще нет.
+     * Строки этого дня, уже попавшие в секцию по умолчанию (например, пока сервис был остановлен дольше,
+     * чем на premake.days), переносятся в новую секцию в той же транзакции: иначе PostgreSQL не дает
+     * создать секцию, пересекающуюся со строками секции по умолчанию.
+     *
+     * @param day День
+     * @return Количество строк, перенесенных из секции по умолчанию
+     */
+    public int createDailyPartition(LocalDate day) {
+        String partition = partitionName(day);
+        String bounds = "FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')";
+        String range = "created_at >= '" + day + "' AND created_at < '" + day.plusDays(1) + "'";
+        try (Connection connection = DatabaseConfig.getConnection();
+             Statement statement = connection.createStatement()) {
+            ResultSet existing = statement.executeQuery("SELECT to_regclass('" + partition + "') IS NOT NULL");
+            existing.next();
+            if (existing.getBoolean(1)) {
+                return 0;
+            }
+            ResultSet defaultRows = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION +
+                                                           " WHERE " + range + ")");
+            defaultRows.next();
+            if (!defaultRows.getBoolean(1)) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF otp_codes " + bounds);
+                return 0;
+            }
+            connection.setAutoCommit(false);
+            try {
+                statement.execute("CREATE TABLE " + partition +
+                                  " (LIKE otp_codes INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                int moved = statement.executeUpdate("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                                                    " WHERE " + range + " RETURNING *) " +
+                                                    "INSERT INTO " + partition + " SELECT * FROM moved");
+                statement.execute("ALTER TABLE otp_codes ATTACH PARTITION " + partition + " " + bounds);
+                connection.commit();
+                return moved;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error creating OTP codes partition for {}", day, e);
+            throw new RuntimeException("Error creating OTP codes partition for " + day, e);
+        }
+    }
+    /**
+     * @return Дни, за которые существуют секции otp_codes
+     */
+    public List<LocalDate> findPartitionDays() {
+        String sql = "SELECT c.relname FROM pg_inherits i " +
+                     "JOIN pg_class c ON c.oid = i.inhrelid " +
+                     "WHERE i.inhparent = to_regclass('otp_codes') AND c.relname LIKE '" + PARTITION_PREFIX + "%'";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            ResultSet resultSet = statement.executeQuery();
+            List<LocalDate> days = new ArrayList<>();
+            while (resultSet.next()) {
+                String suffix = resultSet.getString("relname").substring(PARTITION_PREFIX.length());
+                days.add(LocalDate.parse(suffix, PARTITION_SUFFIX));
+            }
+            return days;
+        } catch (SQLException e) {
+            logger.error("Error listing OTP codes partitions", e);
+            throw new RuntimeException("Error listing OTP codes partitions", e);
+        }
+    }
+    /**
+     * Отсоединяет секцию за указанный день; таблица секции остается в базе
+     *
+     * @param day День
+     */
+    public void detachPartition(LocalDate day) {
+        execute("ALTER TABLE otp_codes DETACH PARTITION " + partitionName(day),
+                "Error detaching OTP codes partition for " + day);
+    }
+    /**
+     * Отсоединяет и удаляет секцию за указанный день
+     *
+     * @param day День
+     */
+    public void dropPartition(LocalDate day) {
+        detachPartition(day);
+        execute("DROP TABLE IF EXISTS " + partitionName(day), "Error dropping OTP codes partition for " + day);
+    }
+    private String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+    }
+    private void execute(String sql, String errorMessage) {
+        try (Connection connection = DatabaseConfig.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            logger.error(errorMessage, e);
+            throw new RuntimeException(errorMessage, e);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.otpservice.dao;
+import com.otpservice.config.DatabaseConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+/**
+ * Отметки об использовании кодов, которые не хранятся в otp_codes (таблица otp_replay).
+ * Запись живет до expires_at, после чего код и так не может быть принят.
+ */
+public class OtpReplayDao {
+    private static final Logger logger = LoggerFactory.getLogger(OtpReplayDao.class);
+    /**
+     * Отмечает ключ как использованный
+     *
+     * @param replayKey Ключ кода
+     * @param expiresAt Время, после которого отметка больше не нужна
+     * @return true, если ключ отмечен впервые; false, если он уже был использован
+     */
+    public boolean markConsumed(String replayKey, LocalDateTime expiresAt) {
+        String sql = "INSERT INTO otp_replay (replay_key, expires_at) VALUES (?, ?) ON CONFLICT (replay_key) DO NOTHING";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, replayKey);
+            statement.setTimestamp(2, Timestamp.valueOf(expiresAt));
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            logger.error("Error marking OTP code as consumed", e);
+            throw new RuntimeException("Error marking OTP code as consumed", e);
+        }
+    }
+    /**
+     * Отмечает ключи как использованные одним пакетом (ключи, отмеченные ранее, пропускаются)
+     *
+     * @param expiresAtByKey Время, после которого отметка больше не нужна, по ключам
+     */
+    public void markConsumed(Map<String, LocalDateTime> expiresAtByKey) {
+        String sql = "INSERT INTO otp_replay (replay_key, expires_at) VALUES (?, ?) ON CONFLICT (replay_key) DO NOTHING";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Map.Entry<String, LocalDateTime> entry : expiresAtByKey.entrySet()) {
+                statement.setString(1, entry.getKey());
+                statement.setTimestamp(2, Timestamp.valueOf(entry.getValue()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            logger.error("Error marking OTP codes as consumed", e);
+            throw new RuntimeException("Error marking OTP codes as consumed", e);
+        }
+    }
+    /**
+     * Удаляет истекшие отметки
+     *
+     * @param limit Максимальное количество строк
+     * @return Количество удаленных строк
+     */
+    public int deleteExpired(int limit) {
+        String sql = "DELETE FROM otp_replay WHERE replay_key IN (" +
+                     "SELECT replay_key FROM otp_replay WHERE expires_at < CURRENT_TIMESTAMP " +
+                     "LIMIT ? FOR UPDATE SKIP LOCKED)";
+        try (Connection connection = DatabaseConfig.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, limit);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error deleting expired replay entries", e);
+            throw new RuntimeException("Error deleting expired replay entries", e);
+        }
+    }
+} 
\ No newline at end of file
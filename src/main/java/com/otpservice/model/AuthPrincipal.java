@@ -0,0 +1,45 @@
+package com.otpservice.model;
+import java.util.Date;
+/**
+ * Аутентифицированный пользователь, полученный из проверенного JWT-токена.
+ * Создается один раз на запрос; обработчики читают данные пользователя из него, а не из токена.
+ */
+public final class AuthPrincipal {
+    private final Long userId;
+    private final String username;
+    private final User.Role role;
+    private final Date expiresAt;
+    public AuthPrincipal(Long userId, String username, User.Role role, Date expiresAt) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+        this.expiresAt = expiresAt;
+    }
+    /**
+     * @return ID пользователя или null для токенов, выданных до появления claim "uid"
+     */
+    public Long getUserId() {
+        return userId;
+    }
+    public String getUsername() {
+        return username;
+    }
+    public User.Role getRole() {
+        return role;
+    }
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+    public boolean hasRole(User.Role requiredRole) {
+        return requiredRole == null || requiredRole == role;
+    }
+    @Override
+    public String toString() {
+        return "AuthPrincipal{" +
+                "userId=" + userId +
+                ", username='" + username + '\'' +
+                ", role=" + role +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+} 
\ No newline at end of file
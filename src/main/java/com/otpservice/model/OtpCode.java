@@ -15,6 +15,12 @@ public class OtpCode {
     public enum DeliveryChannel {
         SMS, EMAIL, TELEGRAM, FILE
     }
+    /**
+     * Результат попытки использовать код
+     */
+    public enum ValidationResult {
+        VALID, EXPIRED, NOT_FOUND
+    }
     public OtpCode() {
     }
     public OtpCode(Long userId, String operationId, String code, Status status, 
@@ -5,6 +5,7 @@ public class OtpConfig {
     private Integer length;
     private Integer expirationTimeMs;
     private LocalDateTime updatedAt;
+    private Long version;
     public OtpConfig() {
     }
     public OtpConfig(Integer length, Integer expirationTimeMs) {
@@ -18,6 +19,13 @@ public class OtpConfig {
         this.expirationTimeMs = expirationTimeMs;
         this.updatedAt = updatedAt;
     }
+    public OtpConfig(Integer id, Integer length, Integer expirationTimeMs, LocalDateTime updatedAt, Long version) {
+        this(id, length, expirationTimeMs, updatedAt);
+        this.version = version;
+    }
+    public OtpConfig(OtpConfig other) {
+        this(other.id, other.length, other.expirationTimeMs, other.updatedAt, other.version);
+    }
     public Integer getId() {
         return id;
     }
@@ -42,6 +50,12 @@ public class OtpConfig {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
     @Override
     public String toString() {
         return "OtpConfig{" +
@@ -49,6 +63,7 @@ public class OtpConfig {
                 ", length=" + length +
                 ", expirationTimeMs=" + expirationTimeMs +
                 ", updatedAt=" + updatedAt +
+                ", version=" + version +
                 '}';
     }
 } 
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.otpservice.model;
+/**
+ * Сохраненный OTP код, доставка которого поставлена в очередь
+ */
+public class OtpDeliveryTicket {
+    private final OtpCode otpCode;
+    private final String deliveryId;
+    public OtpDeliveryTicket(OtpCode otpCode, String deliveryId) {
+        this.otpCode = otpCode;
+        this.deliveryId = deliveryId;
+    }
+    public OtpCode getOtpCode() {
+        return otpCode;
+    }
+    public String getDeliveryId() {
+        return deliveryId;
+    }
+} 
\ No newline at end of file
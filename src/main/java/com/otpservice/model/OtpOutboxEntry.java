@@ -0,0 +1,50 @@
+package com.otpservice.model;
+import java.time.LocalDateTime;
+/**
+ * Запись очереди доставки вместе с данными доставляемого кода
+ */
+public class OtpOutboxEntry {
+    private final Long id;
+    private final Long otpCodeId;
+    private final OtpCode.DeliveryChannel deliveryChannel;
+    private final String recipient;
+    private final int attempts;
+    private final String code;
+    private final OtpCode.Status codeStatus;
+    private final LocalDateTime expiresAt;
+    public OtpOutboxEntry(Long id, Long otpCodeId, OtpCode.DeliveryChannel deliveryChannel, String recipient,
+                          int attempts, String code, OtpCode.Status codeStatus, LocalDateTime expiresAt) {
+        this.id = id;
+        this.otpCodeId = otpCodeId;
+        this.deliveryChannel = deliveryChannel;
+        this.recipient = recipient;
+        this.attempts = attempts;
+        this.code = code;
+        this.codeStatus = codeStatus;
+        this.expiresAt = expiresAt;
+    }
+    public Long getId() {
+        return id;
+    }
+    public Long getOtpCodeId() {
+        return otpCodeId;
+    }
+    public OtpCode.DeliveryChannel getDeliveryChannel() {
+        return deliveryChannel;
+    }
+    public String getRecipient() {
+        return recipient;
+    }
+    public int getAttempts() {
+        return attempts;
+    }
+    public String getCode() {
+        return code;
+    }
+    public OtpCode.Status getCodeStatus() {
+        return codeStatus;
+    }
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+} 
\ No newline at end of file
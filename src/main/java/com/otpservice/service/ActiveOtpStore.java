@@ -0,0 +1,160 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import com.otpservice.dao.OtpCodeDao;
+import com.otpservice.model.OtpCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Хранилище активных OTP кодов в памяти, ключ - operationId.
+ * Код попадает сюда после успешной отправки и удаляется при использовании или по истечении срока,
+ * поэтому проверка свежих кодов не требует чтения из базы: в базу пишется только смена статуса.
+ * Хранилище ограничено по размеру; коды, которые в него не поместились, проверяются через базу.
+ */
+public class ActiveOtpStore {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveOtpStore.class);
+    private static ActiveOtpStore instance;
+    private final Map<String, OtpCode> codesByOperationId = new ConcurrentHashMap<>();
+    private final OtpCodeDao otpCodeDao = new OtpCodeDao();
+    private final boolean enabled = AppConfig.isOtpActiveStoreEnabled();
+    private final int maxSize = AppConfig.getOtpActiveStoreMaxSize();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private ActiveOtpStore() {
+    }
+    /**
+     * Получить экземпляр хранилища
+     */
+    public static synchronized ActiveOtpStore getInstance() {
+        if (instance == null) {
+            instance = new ActiveOtpStore();
+        }
+        return instance;
+    }
+    /**
+     * Заполняет хранилище действующими кодами из базы (после перезапуска)
+     */
+    public void loadFromDatabase() {
+        if (!enabled) {
+            return;
+        }
+        List<OtpCode> activeCodes = otpCodeDao.findActive(LocalDateTime.now(), maxSize);
+        for (OtpCode otpCode : activeCodes) {
+            codesByOperationId.putIfAbsent(otpCode.getOperationId(), otpCode);
+        }
+        logger.info("Active OTP store loaded with {} codes", codesByOperationId.size());
+    }
+    /**
+     * Добавляет отправленный код в хранилище
+     *
+     * @param otpCode Сохраненный в базе активный код
+     */
+    public void put(OtpCode otpCode) {
+        if (!enabled || otpCode.getOperationId() == null) {
+            return;
+        }
+        if (codesByOperationId.size() >= maxSize) {
+            evictExpired();
+            if (codesByOperationId.size() >= maxSize) {
+                rejected.increment();
+                return;
+            }
+        }
+        codesByOperationId.put(otpCode.getOperationId(), otpCode);
+    }
+    /**
+     * Проверяет и использует код, если операция есть в хранилище.
+     * Смена статуса записывается в базу условным UPDATE по id, поэтому код не будет принят дважды,
+     * даже если его параллельно проверяет другой узел.
+     *
+     * @param operationId ID операции
+     * @param code OTP код
+     * @param now Текущее время
+     * @return Результат проверки или null, если операции нет в хранилище и нужно обратиться к базе
+     */
+    public OtpCode.ValidationResult consume(String operationId, String code, LocalDateTime now) {
+        OtpCode otpCode = enabled ? codesByOperationId.get(operationId) : null;
+        if (otpCode == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (!MessageDigest.isEqual(otpCode.getCode().getBytes(StandardCharsets.UTF_8),
+                code.getBytes(StandardCharsets.UTF_8))) {
+            return OtpCode.ValidationResult.NOT_FOUND;
+        }
+        if (!codesByOperationId.remove(operationId, otpCode)) {
+            return OtpCode.ValidationResult.NOT_FOUND;
+        }
+        if (!now.isBefore(otpCode.getExpiresAt())) {
+            otpCodeDao.updateStatusIfActive(otpCode.getId(), OtpCode.Status.EXPIRED);
+            return OtpCode.ValidationResult.EXPIRED;
+        }
+        return otpCodeDao.updateStatusIfActive(otpCode.getId(), OtpCode.Status.USED)
+                ? OtpCode.ValidationResult.VALID
+                : OtpCode.ValidationResult.NOT_FOUND;
+    }
+    /**
+     * Удаляет из хранилища коды с истекшим сроком действия
+     */
+    public void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int before = codesByOperationId.size();
+        codesByOperationId.values().removeIf(otpCode -> !now.isBefore(otpCode.getExpiresAt()));
+        evicted.add(Math.max(before - codesByOperationId.size(), 0));
+    }
+    /**
+     * Удаляет код из хранилища, если для операции хранится именно он
+     *
+     * @param operationId ID операции
+     * @param otpCodeId ID кода
+     */
+    public void remove(String operationId, Long otpCodeId) {
+        if (operationId != null) {
+            codesByOperationId.computeIfPresent(operationId,
+                    (key, otpCode) -> otpCodeId.equals(otpCode.getId()) ? null : otpCode);
+        }
+    }
+    /**
+     * Удаляет код из хранилища по его ID (когда operationId неизвестен)
+     *
+     * @param otpCodeId ID кода
+     */
+    public void removeById(Long otpCodeId) {
+        codesByOperationId.values().removeIf(otpCode -> otpCodeId.equals(otpCode.getId()));
+    }
+    /**
+     * Удаляет из хранилища коды пользователя
+     *
+     * @param userId ID пользователя
+     */
+    public void removeByUserId(Long userId) {
+        codesByOperationId.values().removeIf(otpCode -> userId.equals(otpCode.getUserId()));
+    }
+    /**
+     * @return Размер хранилища и счетчики попаданий
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", codesByOperationId.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("rejected", rejected.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+} 
\ No newline at end of file
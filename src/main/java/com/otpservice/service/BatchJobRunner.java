@@ -0,0 +1,79 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+/**
+ * Выполняет массовые операции над таблицами небольшими пачками (каждая пачка - отдельная транзакция)
+ * с ограничением числа строк в секунду, чтобы фоновое обслуживание не вытесняло основные запросы.
+ * Итоги последнего запуска каждой задачи доступны через getLastRuns().
+ */
+public final class BatchJobRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchJobRunner.class);
+    private static final Map<String, Map<String, Object>> LAST_RUNS = new ConcurrentHashMap<>();
+    private BatchJobRunner() {
+    }
+    /**
+     * Выполняет операцию пачками, пока очередная пачка не окажется неполной
+     *
+     * @param jobName Имя задачи для логов и метрик
+     * @param batch Операция над одной пачкой: принимает размер пачки, возвращает число обработанных строк
+     * @return Общее число обработанных строк
+     */
+    public static long run(String jobName, IntUnaryOperator batch) {
+        int batchSize = AppConfig.getMaintenanceBatchSize();
+        int maxRowsPerSecond = AppConfig.getMaintenanceMaxRowsPerSecond();
+        long start = System.nanoTime();
+        long rows = 0;
+        int batches = 0;
+        try {
+            while (true) {
+                int processed = batch.applyAsInt(batchSize);
+                batches++;
+                rows += processed;
+                if (processed < batchSize) {
+                    break;
+                }
+                throttle(start, rows, maxRowsPerSecond);
+            }
+        } finally {
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("rows", rows);
+            stats.put("batches", batches);
+            stats.put("durationMs", durationMs);
+            stats.put("finishedAt", System.currentTimeMillis());
+            LAST_RUNS.put(jobName, stats);
+            if (rows > 0) {
+                logger.info("Job {} processed {} rows in {} batches, {} ms", jobName, rows, batches, durationMs);
+            }
+        }
+        return rows;
+    }
+    /**
+     * @return Итоги последнего запуска каждой задачи
+     */
+    public static Map<String, Object> getLastRuns() {
+        return new LinkedHashMap<>(LAST_RUNS);
+    }
+    private static void throttle(long startNanos, long rows, int maxRowsPerSecond) {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long targetNanos = rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+        long sleepNanos = targetNanos - (System.nanoTime() - startNanos);
+        if (sleepNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch job interrupted", e);
+        }
+    }
+} 
\ No newline at end of file
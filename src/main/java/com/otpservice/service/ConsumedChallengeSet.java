@@ -0,0 +1,138 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import com.otpservice.dao.OtpReplayDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+/**
+ * Множество использованных токенов-вызовов (otp.mode=challenge).
+ * Токены хранятся в памяти до истечения срока действия. Если множество переполнено и после удаления
+ * истекших токенов места не хватает, еще действующие токены переносятся в таблицу otp_replay, и до истечения
+ * самого позднего из них токены проверяются и отмечаются в базе.
+ */
+public class ConsumedChallengeSet {
+    private static final Logger logger = LoggerFactory.getLogger(ConsumedChallengeSet.class);
+    private static final String KEY_PREFIX = "challenge:";
+    private static ConsumedChallengeSet instance;
+    private final ConcurrentHashMap<String, Long> expiresAtByNonce = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OtpReplayDao replayDao = new OtpReplayDao();
+    private final int maxSize = AppConfig.getOtpChallengeConsumedMaxSize();
+    private final AtomicLong spilledUntil = new AtomicLong();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+    private ConsumedChallengeSet() {
+    }
+    public static synchronized ConsumedChallengeSet getInstance() {
+        if (instance == null) {
+            instance = new ConsumedChallengeSet();
+        }
+        return instance;
+    }
+    /**
+     * Отмечает токен как использованный
+     *
+     * @param nonce Nonce токена
+     * @param expiresAtMillis Время истечения токена
+     * @return true, если токен использован впервые
+     */
+    boolean consume(String nonce, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        lock.readLock().lock();
+        try {
+            if (expiresAtByNonce.containsKey(nonce)) {
+                replays.increment();
+                return false;
+            }
+            if (spilledUntil.get() > now) {
+                databaseChecks.increment();
+                if (!replayDao.markConsumed(KEY_PREFIX + nonce, toLocalDateTime(expiresAtMillis))) {
+                    replays.increment();
+                    return false;
+                }
+                spilledUntil.accumulateAndGet(expiresAtMillis, Math::max);
+                consumed.increment();
+                return true;
+            }
+            if (expiresAtByNonce.putIfAbsent(nonce, expiresAtMillis) != null) {
+                replays.increment();
+                return false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        consumed.increment();
+        if (expiresAtByNonce.size() > maxSize) {
+            spill(now);
+        }
+        return true;
+    }
+    /**
+     * Удаляет токены с истекшим сроком действия
+     */
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        expiresAtByNonce.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+    /**
+     * @return Размер множества и счетчики проверок
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", expiresAtByNonce.size());
+        stats.put("maxSize", maxSize);
+        stats.put("consumed", consumed.sum());
+        stats.put("replays", replays.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("databaseChecks", databaseChecks.sum());
+        stats.put("spilledUntil", spilledUntil.get() > System.currentTimeMillis()
+                ? Instant.ofEpochMilli(spilledUntil.get()).toString() : null);
+        return stats;
+    }
+    /**
+     * Освобождает место: удаляет истекшие токены, а если этого мало - переносит остальные в базу
+     */
+    private void spill(long now) {
+        if (!lock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            if (expiresAtByNonce.size() <= maxSize) {
+                return;
+            }
+            expiresAtByNonce.values().removeIf(expiresAt -> expiresAt <= now);
+            if (expiresAtByNonce.size() <= maxSize / 2) {
+                return;
+            }
+            Map<String, LocalDateTime> live = new HashMap<>(expiresAtByNonce.size() * 2);
+            long latest = 0;
+            for (Map.Entry<String, Long> entry : expiresAtByNonce.entrySet()) {
+                live.put(KEY_PREFIX + entry.getKey(), toLocalDateTime(entry.getValue()));
+                latest = Math.max(latest, entry.getValue());
+            }
+            replayDao.markConsumed(live);
+            spilledUntil.accumulateAndGet(latest, Math::max);
+            expiresAtByNonce.clear();
+            spilled.add(live.size());
+            logger.warn("Consumed challenge set is full, moved {} entries to the database", live.size());
+        } catch (RuntimeException e) {
+            logger.error("Error moving consumed challenges to the database", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+} 
\ No newline at end of file
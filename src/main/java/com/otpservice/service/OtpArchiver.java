@@ -0,0 +1,93 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import com.otpservice.dao.OtpCodeArchive;
+import com.otpservice.dao.OtpCodeDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+/**
+ * Фоновый перенос завершенных (USED, EXPIRED) OTP кодов старше заданного возраста из otp_codes в архив.
+ * Строки читаются курсором и сразу пишутся в сегмент; из таблицы они удаляются пачками
+ * только после того, как сегмент надежно записан на диск.
+ */
+public class OtpArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(OtpArchiver.class);
+    private static final int FETCH_SIZE = 1000;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final OtpCodeDao otpCodeDao = new OtpCodeDao();
+    private final OtpCodeArchive archive = OtpCodeArchive.getInstance();
+    /**
+     * Запускает архивацию, если она включена
+     */
+    public void start() {
+        if (!archive.isEnabled()) {
+            return;
+        }
+        long intervalMinutes = AppConfig.getOtpArchiveIntervalMinutes();
+        logger.info("Starting OTP archiver: min age {} hours, retention {} days, every {} minutes",
+                AppConfig.getOtpArchiveMinAgeHours(), AppConfig.getOtpArchiveRetentionDays(), intervalMinutes);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveFinishedCodes();
+            } catch (Exception e) {
+                logger.error("Error archiving OTP codes", e);
+            }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+    /**
+     * Останавливает архивацию
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    private void archiveFinishedCodes() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusHours(AppConfig.getOtpArchiveMinAgeHours());
+        int segmentMaxRows = AppConfig.getOtpArchiveSegmentMaxRows();
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = new ArrayList<>();
+            try (OtpCodeArchive.SegmentWriter writer = archive.openSegment()) {
+                otpCodeDao.streamFinishedBefore(cutoff, afterId, segmentMaxRows, FETCH_SIZE, otpCode -> {
+                    try {
+                        writer.append(otpCode);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    ids.add(otpCode.getId());
+                });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                writer.commit();
+            }
+            deleteArchived(ids);
+            logger.info("Archived {} OTP codes", ids.size());
+            if (ids.size() < segmentMaxRows) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        int deletedSegments = archive.deleteSegmentsOlderThan(now.minusDays(AppConfig.getOtpArchiveRetentionDays()));
+        if (deletedSegments > 0) {
+            logger.info("Deleted {} OTP archive segments past retention", deletedSegments);
+        }
+    }
+    private void deleteArchived(List<Long> ids) {
+        int[] position = {0};
+        BatchJobRunner.run("deleteArchivedOtpCodes", limit -> {
+            int from = position[0];
+            int to = Math.min(from + limit, ids.size());
+            otpCodeDao.deleteArchived(ids.subList(from, to));
+            position[0] = to;
+            return to - from;
+        });
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+/**
+ * Подписанные токены-вызовы для режима otp.mode=challenge.
+ * Токен содержит версию, случайный nonce, время истечения и HMAC-SHA256 (ключ otp.challenge.key)
+ * от этих полей, userId, operationId и SHA-256 кода. Сам код и его хэш в токен не входят,
+ * поэтому подобрать код по перехваченному токену без ключа нельзя.
+ */
+final class OtpChallengeSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int MIN_KEY_LENGTH = 32;
+    private static final int NONCE_LENGTH = 16;
+    private static final int TAG_LENGTH = 32;
+    private static final int TOKEN_LENGTH = 1 + NONCE_LENGTH + Long.BYTES + TAG_LENGTH;
+    private static OtpChallengeSigner instance;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+    private final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+    private OtpChallengeSigner() {
+        String secret = AppConfig.getOtpChallengeKey();
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < MIN_KEY_LENGTH) {
+            throw new IllegalStateException("otp.challenge.key must be at least " + MIN_KEY_LENGTH + " bytes");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac hmac = Mac.getInstance(ALGORITHM);
+                hmac.init(key);
+                return hmac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+            }
+        });
+    }
+    static synchronized OtpChallengeSigner getInstance() {
+        if (instance == null) {
+            instance = new OtpChallengeSigner();
+        }
+        return instance;
+    }
+    /**
+     * Создает токен для выданного кода
+     *
+     * @param userId ID пользователя
+     * @param operationId ID операции
+     * @param code Код
+     * @param expiresAtMillis Время истечения (мс с эпохи)
+     * @return Токен в base64url
+     */
+    String sign(Long userId, String operationId, String code, long expiresAtMillis) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        OtpCodeGenerator.nextBytes(nonce);
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_LENGTH);
+        token.put(VERSION).put(nonce).putLong(expiresAtMillis);
+        token.put(tag(nonce, userId, operationId, code, expiresAtMillis));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+    }
+    /**
+     * Проверяет подпись токена для кода, введенного пользователем
+     *
+     * @return Данные токена или null, если токен поврежден или не соответствует пользователю, операции и коду
+     */
+    Challenge verify(String token, Long userId, String operationId, String code) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length != TOKEN_LENGTH || bytes[0] != VERSION) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, TOKEN_LENGTH - 1);
+        byte[] nonce = new byte[NONCE_LENGTH];
+        buffer.get(nonce);
+        long expiresAtMillis = buffer.getLong();
+        byte[] tag = new byte[TAG_LENGTH];
+        buffer.get(tag);
+        if (!MessageDigest.isEqual(tag, tag(nonce, userId, operationId, code, expiresAtMillis))) {
+            return null;
+        }
+        return new Challenge(Base64.getUrlEncoder().withoutPadding().encodeToString(nonce), expiresAtMillis);
+    }
+    private byte[] tag(byte[] nonce, Long userId, String operationId, String code, long expiresAtMillis) {
+        byte[] codeHash = digest.get().digest(code.getBytes(StandardCharsets.UTF_8));
+        Mac current = mac.get();
+        current.update(VERSION);
+        current.update(nonce);
+        current.update(ByteBuffer.allocate(Long.BYTES * 2).putLong(userId).putLong(expiresAtMillis).array());
+        current.update(codeHash);
+        return current.doFinal(operationId.getBytes(StandardCharsets.UTF_8));
+    }
+    /**
+     * Проверенный токен: nonce (ключ для отметки об использовании) и время истечения
+     */
+    static final class Challenge {
+        private final String nonce;
+        private final long expiresAtMillis;
+        Challenge(String nonce, long expiresAtMillis) {
+            this.nonce = nonce;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+        String getNonce() {
+            return nonce;
+        }
+        long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.otpservice.service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+/**
+ * Генератор цифровых OTP-кодов.
+ * У каждого потока свой экземпляр DRBG, поэтому потоки не конкурируют за общий источник случайности.
+ * Случайные байты запрашиваются блоками и переводятся в цифры выборкой с отклонением: байты >= 250
+ * отбрасываются, остальные берутся по модулю 10, так что все цифры равновероятны.
+ */
+final class OtpCodeGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(OtpCodeGenerator.class);
+    private static final int BUFFER_SIZE = 256;
+    private static final int MAX_CODE_LENGTH = 64;
+    private static final int REJECTION_LIMIT = 250;
+    private static final char[] DIGITS = "0123456789".toCharArray();
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+    private OtpCodeGenerator() {
+    }
+    /**
+     * Генерирует OTP-код заданной длины
+     *
+     * @param length Длина кода
+     * @return Сгенерированный код
+     */
+    static String generate(int length) {
+        if (length <= 0 || length > MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("OTP code length must be between 1 and " + MAX_CODE_LENGTH);
+        }
+        State state = STATE.get();
+        char[] code = state.code;
+        for (int i = 0; i < length; ) {
+            if (state.position == BUFFER_SIZE) {
+                state.random.nextBytes(state.bytes);
+                state.position = 0;
+            }
+            int value = state.bytes[state.position++] & 0xFF;
+            if (value < REJECTION_LIMIT) {
+                code[i++] = DIGITS[value % 10];
+            }
+        }
+        return new String(code, 0, length);
+    }
+    /**
+     * Заполняет массив случайными байтами из DRBG текущего потока
+     *
+     * @param bytes Массив для заполнения
+     */
+    static void nextBytes(byte[] bytes) {
+        STATE.get().random.nextBytes(bytes);
+    }
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            logger.warn("DRBG is not available, falling back to the default SecureRandom");
+            return new SecureRandom();
+        }
+    }
+    /**
+     * Состояние генератора одного потока: DRBG, блок случайных байтов и буфер кода
+     */
+    private static final class State {
+        private final SecureRandom random = newRandom();
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+        private final char[] code = new char[MAX_CODE_LENGTH];
+        private int position = BUFFER_SIZE;
+    }
+} 
\ No newline at end of file
@@ -5,17 +5,61 @@ import com.otpservice.model.OtpConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+/**
+ * Сервис конфигурации OTP. Конфигурация хранится в памяти как неизменяемый снимок,
+ * который атомарно заменяется при обновлении и при изменениях на других узлах (см. OtpConfigWatcher).
+ */
 public class OtpConfigService {
     private static final Logger logger = LoggerFactory.getLogger(OtpConfigService.class);
+    private static final AtomicReference<OtpConfig> SNAPSHOT = new AtomicReference<>();
     private final OtpConfigDao otpConfigDao;
     public OtpConfigService() {
         this.otpConfigDao = new OtpConfigDao();
     }
+    /**
+     * Возвращает текущую конфигурацию из снимка в памяти; обращается к базе только при первом вызове
+     *
+     * @return Копия текущей конфигурации
+     */
     public OtpConfig getConfig() {
-        logger.debug("Getting OTP configuration");
+        OtpConfig snapshot = SNAPSHOT.get();
+        if (snapshot == null) {
+            snapshot = loadConfig();
+        }
+        return new OtpConfig(snapshot);
+    }
+    /**
+     * Перечитывает конфигурацию из базы, если ее версия отличается от версии снимка
+     *
+     * @return true, если снимок был обновлен
+     */
+    public boolean refreshIfChanged() {
+        OtpConfig snapshot = SNAPSHOT.get();
+        Optional<Long> version = otpConfigDao.getVersion();
+        if (snapshot != null && version.isPresent() && version.get().equals(snapshot.getVersion())) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+    /**
+     * Безусловно перечитывает конфигурацию из базы и заменяет снимок
+     */
+    public void reload() {
+        otpConfigDao.getConfig().ifPresent(config -> {
+            OtpConfig previous = SNAPSHOT.getAndSet(config);
+            if (previous == null || !config.getVersion().equals(previous.getVersion())) {
+                logger.info("OTP configuration snapshot updated: {}", config);
+            }
+        });
+    }
+    private OtpConfig loadConfig() {
+        logger.debug("Loading OTP configuration");
         Optional<OtpConfig> otpConfigOptional = otpConfigDao.getConfig();
         if (otpConfigOptional.isPresent()) {
-            return otpConfigOptional.get();
+            SNAPSHOT.compareAndSet(null, otpConfigOptional.get());
+            return SNAPSHOT.get();
         } else {
             logger.info("Creating default OTP configuration");
             OtpConfig defaultConfig = new OtpConfig(
@@ -23,7 +67,8 @@ public class OtpConfigService {
                     AppConfig.getDefaultOtpExpirationMs()
             );
             updateConfig(defaultConfig);
-            return defaultConfig;
+            OtpConfig snapshot = SNAPSHOT.get();
+            return snapshot != null ? snapshot : defaultConfig;
         }
     }
     public void updateConfig(OtpConfig otpConfig) {
@@ -38,6 +83,7 @@ public class OtpConfigService {
             throw new IllegalArgumentException("OTP expiration time must be between 1 minute and 1 hour");
         }
         otpConfigDao.updateConfig(otpConfig);
+        reload();
         logger.info("OTP configuration updated successfully");
     }
 } 
\ No newline at end of file
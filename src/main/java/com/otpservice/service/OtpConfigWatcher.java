@@ -0,0 +1,114 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import com.otpservice.config.DatabaseConfig;
+import com.otpservice.dao.OtpConfigDao;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+/**
+ * Следит за изменениями конфигурации OTP, сделанными на других узлах.
+ * Основной механизм - LISTEN/NOTIFY PostgreSQL на отдельном соединении;
+ * запасной - периодическая проверка версии конфигурации.
+ */
+public class OtpConfigWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OtpConfigWatcher.class);
+    private static final int NOTIFICATION_POLL_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+    private final OtpConfigService otpConfigService;
+    private final long versionCheckIntervalMs;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile Connection connection;
+    public OtpConfigWatcher(OtpConfigService otpConfigService) {
+        this.otpConfigService = otpConfigService;
+        this.versionCheckIntervalMs = AppConfig.getOtpConfigVersionCheckIntervalMs();
+        this.thread = new Thread(this::run, "otp-config-watcher");
+        this.thread.setDaemon(true);
+    }
+    /**
+     * Запускает наблюдение
+     */
+    public void start() {
+        logger.info("Starting OTP config watcher (LISTEN {}, version check every {} ms)",
+                OtpConfigDao.CHANGE_CHANNEL, versionCheckIntervalMs);
+        running = true;
+        thread.start();
+    }
+    /**
+     * Останавливает наблюдение
+     */
+    public void stop() {
+        logger.info("Stopping OTP config watcher");
+        running = false;
+        thread.interrupt();
+        closeConnection();
+    }
+    private void run() {
+        long lastVersionCheck = System.currentTimeMillis();
+        while (running) {
+            try {
+                PGConnection pgConnection = listen();
+                PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATION_POLL_MS);
+                if (notifications != null && notifications.length > 0) {
+                    logger.debug("Received {} OTP config change notification(s)", notifications.length);
+                    otpConfigService.reload();
+                    lastVersionCheck = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - lastVersionCheck >= versionCheckIntervalMs) {
+                    otpConfigService.refreshIfChanged();
+                    lastVersionCheck = System.currentTimeMillis();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("OTP config watcher error, reconnecting in {} ms: {}", RECONNECT_DELAY_MS, e.getMessage());
+                closeConnection();
+                sleepBeforeReconnect();
+                try {
+                    otpConfigService.refreshIfChanged();
+                } catch (RuntimeException refreshError) {
+                    logger.debug("Version check failed", refreshError);
+                }
+            }
+        }
+        closeConnection();
+    }
+    /**
+     * Возвращает соединение, подписанное на канал изменений, при необходимости открывая новое
+     */
+    private PGConnection listen() throws SQLException {
+        Connection current = connection;
+        if (current == null || current.isClosed()) {
+            current = DatabaseConfig.createDedicatedConnection();
+            try (Statement statement = current.createStatement()) {
+                statement.execute("LISTEN " + OtpConfigDao.CHANGE_CHANNEL);
+            }
+            connection = current;
+            logger.debug("Listening for OTP config changes on channel {}", OtpConfigDao.CHANGE_CHANNEL);
+        }
+        return current.unwrap(PGConnection.class);
+    }
+    private void closeConnection() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing listener connection", e);
+            }
+        }
+    }
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+} 
\ No newline at end of file
@@ -1,16 +1,17 @@
 package com.otpservice.service;
+import com.otpservice.config.AppConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 /**
- * Планировщик для обновления статусов просроченных OTP кодов
+ * Планировщик запасной проверки просроченных OTP кодов.
+ * Основную работу выполняет OtpExpiryTimer; здесь редко обрабатываются коды, которые в таймер не попали.
  */
 public class OtpExpirationScheduler {
     private static final Logger logger = LoggerFactory.getLogger(OtpExpirationScheduler.class);
     private static final int DEFAULT_INITIAL_DELAY_SECONDS = 30;
-    private static final int DEFAULT_PERIOD_SECONDS = 60;
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private final OtpService otpService;
     public OtpExpirationScheduler(OtpService otpService) {
@@ -20,7 +21,7 @@ public class OtpExpirationScheduler {
      * Запускает планировщик с интервалом по умолчанию
      */
     public void start() {
-        start(DEFAULT_INITIAL_DELAY_SECONDS, DEFAULT_PERIOD_SECONDS);
+        start(DEFAULT_INITIAL_DELAY_SECONDS, AppConfig.getOtpExpirationSweepIntervalSeconds());
     }
     /**
      * Запускает планировщик с заданным интервалом
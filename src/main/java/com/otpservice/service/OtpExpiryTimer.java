@@ -0,0 +1,159 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import com.otpservice.dao.OtpCodeDao;
+import com.otpservice.model.OtpCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Таймер истечения OTP кодов.
+ * Каждый отправленный код ставится в очередь с задержкой до expiresAt; поток таймера забирает
+ * наступившие сроки пачками и переводит их в EXPIRED одним UPDATE по списку id.
+ * Коды, не попавшие в очередь (переполнение, перезапуск), обрабатывает редкая проверка OtpExpirationScheduler.
+ */
+public class OtpExpiryTimer {
+    private static final Logger logger = LoggerFactory.getLogger(OtpExpiryTimer.class);
+    private static OtpExpiryTimer instance;
+    private final DelayQueue<ScheduledExpiry> queue = new DelayQueue<>();
+    private final OtpCodeDao otpCodeDao = new OtpCodeDao();
+    private final ActiveOtpStore activeOtpStore = ActiveOtpStore.getInstance();
+    private final int batchSize = AppConfig.getOtpExpiryBatchSize();
+    private final int maxQueueSize = AppConfig.getOtpExpiryQueueMaxSize();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private volatile Thread worker;
+    private volatile boolean running;
+    private OtpExpiryTimer() {
+    }
+    /**
+     * Получить экземпляр таймера
+     */
+    public static synchronized OtpExpiryTimer getInstance() {
+        if (instance == null) {
+            instance = new OtpExpiryTimer();
+        }
+        return instance;
+    }
+    /**
+     * Планирует истечение кода
+     *
+     * @param otpCode Сохраненный активный код
+     */
+    public void schedule(OtpCode otpCode) {
+        if (queue.size() >= maxQueueSize) {
+            droppedCount.increment();
+            return;
+        }
+        long delayNanos = Duration.between(LocalDateTime.now(), otpCode.getExpiresAt()).toNanos();
+        queue.add(new ScheduledExpiry(otpCode.getId(), otpCode.getOperationId(), System.nanoTime() + delayNanos));
+    }
+    /**
+     * Ставит в очередь все действующие коды из базы (после перезапуска)
+     */
+    public void loadFromDatabase() {
+        List<OtpCode> activeCodes = otpCodeDao.findActive(LocalDateTime.now(), maxQueueSize);
+        for (OtpCode otpCode : activeCodes) {
+            schedule(otpCode);
+        }
+        logger.info("OTP expiry timer loaded with {} codes", queue.size());
+    }
+    /**
+     * Запускает поток таймера
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "otp-expiry-timer");
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("Started OTP expiry timer with batch size {}", batchSize);
+    }
+    /**
+     * Останавливает поток таймера
+     */
+    public synchronized void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    /**
+     * @return Размер очереди и счетчики обработанных кодов
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", queue.size());
+        stats.put("maxPending", maxQueueSize);
+        stats.put("expired", expiredCount.sum());
+        stats.put("batches", batchCount.sum());
+        stats.put("dropped", droppedCount.sum());
+        return stats;
+    }
+    private void run() {
+        List<ScheduledExpiry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                expire(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error expiring OTP codes", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    private void expire(List<ScheduledExpiry> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (ScheduledExpiry expiry : batch) {
+            ids.add(expiry.id);
+            activeOtpStore.remove(expiry.operationId, expiry.id);
+        }
+        int updated = otpCodeDao.expireByIds(ids);
+        expiredCount.add(updated);
+        batchCount.increment();
+        logger.debug("Expired {} of {} scheduled OTP codes", updated, ids.size());
+    }
+    /**
+     * Элемент очереди: срок истечения одного кода
+     */
+    private static final class ScheduledExpiry implements Delayed {
+        private final Long id;
+        private final String operationId;
+        private final long deadlineNanos;
+        ScheduledExpiry(Long id, String operationId, long deadlineNanos) {
+            this.id = id;
+            this.operationId = operationId;
+            this.deadlineNanos = deadlineNanos;
+        }
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((ScheduledExpiry) other).deadlineNanos);
+        }
+    }
+} 
\ No newline at end of file
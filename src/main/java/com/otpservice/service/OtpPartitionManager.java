@@ -0,0 +1,85 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import com.otpservice.dao.OtpPartitionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+/**
+ * Обслуживание дневных секций otp_codes: заранее создает секции на ближайшие дни
+ * и отсоединяет или удаляет секции старше срока хранения (вместо массового DELETE)
+ */
+public class OtpPartitionManager {
+    private static final Logger logger = LoggerFactory.getLogger(OtpPartitionManager.class);
+    private static final int PERIOD_HOURS = 1;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final OtpPartitionDao partitionDao = new OtpPartitionDao();
+    private final int premakeDays = AppConfig.getOtpPartitionPremakeDays();
+    private final int retentionDays = AppConfig.getOtpPartitionRetentionDays();
+    private final boolean dropExpired = "drop".equalsIgnoreCase(AppConfig.getOtpPartitionRetentionAction());
+    /**
+     * Запускает обслуживание, если секционирование включено и таблица действительно секционирована
+     */
+    public void start() {
+        if (!AppConfig.isOtpPartitioningEnabled()) {
+            return;
+        }
+        if (!partitionDao.isPartitioned()) {
+            logger.warn("OTP codes partitioning is enabled, but otp_codes is not a partitioned table; "
+                    + "partition maintenance is disabled");
+            return;
+        }
+        maintain();
+        logger.info("Starting OTP codes partition maintenance: premake {} days, retention {} days ({})",
+                premakeDays, retentionDays, dropExpired ? "drop" : "detach");
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                maintain();
+            } catch (Exception e) {
+                logger.error("Error maintaining OTP codes partitions", e);
+            }
+        }, PERIOD_HOURS, PERIOD_HOURS, TimeUnit.HOURS);
+    }
+    /**
+     * Останавливает обслуживание
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    /**
+     * Создает недостающие секции и убирает устаревшие. Ошибка с одной секцией не мешает обработать остальные
+     */
+    private void maintain() {
+        LocalDate today = partitionDao.currentDate();
+        for (int i = 0; i <= premakeDays; i++) {
+            LocalDate day = today.plusDays(i);
+            try {
+                int moved = partitionDao.createDailyPartition(day);
+                if (moved > 0) {
+                    logger.warn("Moved {} OTP codes for {} from the default partition to a new daily partition",
+                            moved, day);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Skipping OTP codes partition for {}", day, e);
+            }
+        }
+        LocalDate oldestKept = today.minusDays(retentionDays);
+        for (LocalDate day : partitionDao.findPartitionDays()) {
+            if (!day.isBefore(oldestKept)) {
+                continue;
+            }
+            try {
+                if (dropExpired) {
+                    partitionDao.dropPartition(day);
+                } else {
+                    partitionDao.detachPartition(day);
+                }
+                logger.info("{} OTP codes partition for {}", dropExpired ? "Dropped" : "Detached", day);
+            } catch (RuntimeException e) {
+                logger.error("Error removing OTP codes partition for {}", day, e);
+            }
+        }
+    }
+} 
\ No newline at end of file
@@ -1,27 +1,89 @@
 package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import com.otpservice.config.DatabaseConfig;
 import com.otpservice.dao.OtpCodeDao;
+import com.otpservice.dao.OtpOutboxDao;
+import com.otpservice.dao.OtpReplayDao;
 import com.otpservice.model.OtpCode;
 import com.otpservice.model.OtpConfig;
+import com.otpservice.model.OtpDeliveryTicket;
 import com.otpservice.model.User;
+import com.otpservice.service.delivery.AsyncDeliveryDispatcher;
+import com.otpservice.service.delivery.DeliveryResult;
+import com.otpservice.service.delivery.DeliveryTask;
+import com.otpservice.service.delivery.DeliveryUnavailableException;
 import com.otpservice.service.delivery.OtpDeliveryService;
 import com.otpservice.service.delivery.OtpDeliveryServiceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 public class OtpService {
     private static final Logger logger = LoggerFactory.getLogger(OtpService.class);
-    private static final SecureRandom RANDOM = new SecureRandom();
-    private static final String DIGITS = "0123456789";
     private final OtpCodeDao otpCodeDao;
+    private final OtpOutboxDao outboxDao;
+    private final OtpReplayDao replayDao;
     private final OtpConfigService otpConfigService;
     private final UserService userService;
+    private final ActiveOtpStore activeOtpStore;
+    private final OtpExpiryTimer expiryTimer;
     public OtpService() {
+        this.expiryTimer = OtpExpiryTimer.getInstance();
         this.otpCodeDao = new OtpCodeDao();
+        this.outboxDao = new OtpOutboxDao();
+        this.replayDao = new OtpReplayDao();
+        this.activeOtpStore = ActiveOtpStore.getInstance();
         this.otpConfigService = new OtpConfigService();
         this.userService = new UserService();
     }
+    /**
+     * @return true, если доставка выполняется асинхронно (delivery.mode=async или outbox)
+     */
+    public boolean isAsyncDelivery() {
+        return "async".equalsIgnoreCase(AppConfig.getDeliveryMode()) || isOutboxDelivery();
+    }
+    /**
+     * @return true, если доставка выполняется через таблицу otp_outbox (delivery.mode=outbox)
+     */
+    public boolean isOutboxDelivery() {
+        return "outbox".equalsIgnoreCase(AppConfig.getDeliveryMode());
+    }
+    /**
+     * @return true, если коды вычисляются из секрета пользователя и не сохраняются в otp_codes (otp.mode=totp)
+     */
+    public boolean isTotpMode() {
+        return "totp".equalsIgnoreCase(AppConfig.getOtpMode());
+    }
+    /**
+     * @return true, если код не сохраняется, а клиенту возвращается подписанный токен-вызов (otp.mode=challenge)
+     */
+    public boolean isChallengeMode() {
+        return "challenge".equalsIgnoreCase(AppConfig.getOtpMode());
+    }
+    /**
+     * @return true, если коды не сохраняются в otp_codes (режимы totp и challenge) и для проверки нужен пользователь
+     */
+    public boolean isStatelessMode() {
+        return isTotpMode() || isChallengeMode();
+    }
+    /**
+     * Создает подписанный токен-вызов для выданного кода (otp.mode=challenge).
+     * Токен возвращается клиенту и передается обратно при валидации вместе с кодом
+     *
+     * @param otpCode Выданный код
+     * @return Токен в base64url
+     */
+    public String createChallenge(OtpCode otpCode) {
+        long expiresAtMillis = otpCode.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return OtpChallengeSigner.getInstance().sign(otpCode.getUserId(), otpCode.getOperationId(),
+                otpCode.getCode(), expiresAtMillis);
+    }
     /**
      * Генерирует и отправляет OTP код
      * 
@@ -29,79 +91,147 @@ public class OtpService {
      * @param operationId ID операции
      * @param recipient Получатель кода
      * @param deliveryChannel Канал доставки
+     * @param fallbackRecipient Получатель в резервном канале (может быть null)
      * @return Сгенерированный OTP код или null в случае ошибки
+     * @throws DeliveryUnavailableException если канал разомкнут, а резервный канал не задан
      */
-    public OtpCode generateAndSendOtp(Long userId, String operationId, String recipient, OtpCode.DeliveryChannel deliveryChannel) {
-        logger.info("Generating OTP for user ID: {}, operation: {}, channel: {}", userId, operationId, deliveryChannel);
-        Optional<User> userOptional = userService.getUserById(userId);
-        if (userOptional.isEmpty()) {
-            logger.error("User with ID {} not found", userId);
-            throw new IllegalArgumentException("User not found");
+    public OtpCode generateAndSendOtp(Long userId, String operationId, String recipient,
+                                      OtpCode.DeliveryChannel deliveryChannel, String fallbackRecipient) {
+        if (isFailoverNeeded(deliveryChannel, fallbackRecipient)) {
+            deliveryChannel = AppConfig.getDeliveryFallbackChannel(deliveryChannel);
+            recipient = fallbackRecipient;
         }
-        OtpConfig config = otpConfigService.getConfig();
-        String code = generateOtpCode(config.getLength());
-        LocalDateTime expiresAt = LocalDateTime.now()
-                .plusNanos(config.getExpirationTimeMs() * 1_000_000L);
-        OtpCode otpCode = new OtpCode(
-                userId,
-                operationId,
-                code,
-                OtpCode.Status.ACTIVE,
-                deliveryChannel,
-                expiresAt
-        );
-        OtpCode savedCode = otpCodeDao.save(otpCode);
-        logger.info("OTP code saved with ID: {}", savedCode.getId());
         OtpDeliveryService deliveryService = OtpDeliveryServiceFactory.getInstance()
                 .getDeliveryService(deliveryChannel);
-        if (!deliveryService.canDeliver(recipient)) {
-            logger.error("Cannot deliver OTP to recipient: {} via channel: {}", recipient, deliveryChannel);
-            otpCodeDao.updateStatus(savedCode.getId(), OtpCode.Status.EXPIRED);
-            throw new IllegalArgumentException("Cannot deliver OTP to this recipient via " + deliveryChannel);
+        if (isStatelessMode()) {
+            OtpCode otpCode = buildDeliverableOtp(userId, operationId, recipient, deliveryChannel, deliveryService);
+            DeliveryResult result = deliveryService.deliver(recipient, otpCode.getCode());
+            if (result != DeliveryResult.SENT) {
+                logger.error("Failed to send OTP code to recipient: {} via channel: {} ({})", recipient, deliveryChannel, result);
+                throw deliveryFailure(result, deliveryChannel);
+            }
+            logger.info("OTP code successfully sent to recipient via {}", deliveryChannel);
+            return otpCode;
         }
-        boolean sent = deliveryService.sendOtp(recipient, code);
-        if (!sent) {
-            logger.error("Failed to send OTP code to recipient: {} via channel: {}", recipient, deliveryChannel);
+        OtpCode savedCode = createOtp(userId, operationId, recipient, deliveryChannel, deliveryService);
+        DeliveryResult result = deliveryService.deliver(recipient, savedCode.getCode());
+        if (result != DeliveryResult.SENT) {
+            logger.error("Failed to send OTP code to recipient: {} via channel: {} ({})", recipient, deliveryChannel, result);
             otpCodeDao.updateStatus(savedCode.getId(), OtpCode.Status.EXPIRED);
-            throw new RuntimeException("Failed to send OTP code");
+            throw deliveryFailure(result, deliveryChannel);
         }
+        activeOtpStore.put(savedCode);
+        expiryTimer.schedule(savedCode);
         logger.info("OTP code successfully sent to recipient via {}", deliveryChannel);
         return savedCode;
     }
     /**
-     * Проверяет валидность OTP кода
+     * Генерирует OTP код и ставит его доставку в очередь, не дожидаясь отправки.
+     * В режиме outbox код и запись очереди сохраняются в одной транзакции, и доставку выполняет OtpOutboxDispatcher,
+     * иначе (и всегда в режимах totp и challenge, где код не сохраняется) доставка передается в пул потоков канала.
+     * 
+     * @param userId ID пользователя
+     * @param operationId ID операции
+     * @param recipient Получатель кода
+     * @param deliveryChannel Канал доставки
+     * @param fallbackRecipient Получатель в резервном канале (может быть null)
+     * @return Сохраненный код и ID доставки
+     * @throws RejectedExecutionException если очередь канала переполнена
+     * @throws DeliveryUnavailableException если канал разомкнут, а резервный канал не задан
+     */
+    public OtpDeliveryTicket generateAndQueueOtp(Long userId, String operationId, String recipient,
+                                                 OtpCode.DeliveryChannel deliveryChannel, String fallbackRecipient) {
+        if (isFailoverNeeded(deliveryChannel, fallbackRecipient)) {
+            deliveryChannel = AppConfig.getDeliveryFallbackChannel(deliveryChannel);
+            recipient = fallbackRecipient;
+        }
+        OtpDeliveryService deliveryService = OtpDeliveryServiceFactory.getInstance()
+                .getDeliveryService(deliveryChannel);
+        if (isStatelessMode()) {
+            return generateAndQueueStateless(userId, operationId, recipient, deliveryChannel, deliveryService);
+        }
+        if (isOutboxDelivery()) {
+            return generateAndEnqueueOutbox(userId, operationId, recipient, deliveryChannel, deliveryService);
+        }
+        OtpCode savedCode = createOtp(userId, operationId, recipient, deliveryChannel, deliveryService);
+        String deliveryId = UUID.randomUUID().toString();
+        String deliveryRecipient = recipient;
+        activeOtpStore.put(savedCode);
+        expiryTimer.schedule(savedCode);
+        try {
+            AsyncDeliveryDispatcher.getInstance().submit(deliveryChannel, new DeliveryTask(savedCode, deliveryId,
+                    () -> deliver(deliveryService, savedCode, deliveryRecipient, deliveryId),
+                    () -> expireUndelivered(savedCode)));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Delivery queue for {} is full, rejecting OTP for operation {}", deliveryChannel, operationId);
+            expireUndelivered(savedCode);
+            throw e;
+        }
+        logger.info("OTP delivery {} queued via {}", deliveryId, deliveryChannel);
+        return new OtpDeliveryTicket(savedCode, deliveryId);
+    }
+    /**
+     * Проверяет OTP код и сразу использует его. Свежие коды проверяются по хранилищу в памяти,
+     * остальные - одним запросом к базе
      * 
      * @param operationId ID операции
      * @param code OTP код
-     * @return true если код валидный, false в противном случае
+     * @return VALID если код принят, EXPIRED если срок действия истек, NOT_FOUND если активного кода нет
      */
-    public boolean validateOtp(String operationId, String code) {
+    public OtpCode.ValidationResult validateOtp(String operationId, String code) {
         logger.info("Validating OTP for operation: {}", operationId);
-        Optional<OtpCode> otpCodeOptional = otpCodeDao.findByOperationIdAndCode(operationId, code);
-        if (otpCodeOptional.isEmpty()) {
-            logger.warn("OTP code not found for operation: {}", operationId);
-            return false;
+        LocalDateTime now = LocalDateTime.now();
+        OtpCode.ValidationResult result = activeOtpStore.consume(operationId, code, now);
+        if (result == null) {
+            result = otpCodeDao.consume(operationId, code, now);
         }
-        OtpCode otpCode = otpCodeOptional.get();
-        if (otpCode.getStatus() != OtpCode.Status.ACTIVE) {
-            logger.warn("OTP code for operation {} is not active, status: {}", operationId, otpCode.getStatus());
-            return false;
+        logValidationResult(operationId, result);
+        return result;
+    }
+    /**
+     * Проверяет OTP код пользователя. В режиме totp код вычисляется заново для текущего шага времени
+     * и соседних шагов (otp.totp.drift.steps), а в базу записывается только отметка об использовании.
+     * В режиме challenge проверяется подпись токена-вызова без чтения из базы, а однократность
+     * обеспечивает ConsumedChallengeSet. В режиме table проверка выполняется как в {@link #validateOtp(String, String)}
+     *
+     * @param userId ID пользователя (не нужен в режиме table)
+     * @param operationId ID операции
+     * @param code OTP код
+     * @param challenge Токен-вызов (нужен только в режиме challenge)
+     * @return VALID если код принят, EXPIRED если срок действия истек, NOT_FOUND если код неверен или уже использован
+     */
+    public OtpCode.ValidationResult validateOtp(Long userId, String operationId, String code, String challenge) {
+        if (isChallengeMode()) {
+            return validateChallenge(userId, operationId, code, challenge);
         }
-        if (otpCode.isExpired()) {
-            logger.warn("OTP code for operation {} has expired", operationId);
-            otpCodeDao.updateStatus(otpCode.getId(), OtpCode.Status.EXPIRED);
-            return false;
+        if (!isTotpMode()) {
+            return validateOtp(operationId, code);
+        }
+        logger.info("Validating OTP for operation: {}", operationId);
+        OtpConfig config = otpConfigService.getConfig();
+        OtpCode.ValidationResult result = OtpCode.ValidationResult.NOT_FOUND;
+        if (code.length() == config.getLength()) {
+            long stepMs = config.getExpirationTimeMs();
+            int driftSteps = AppConfig.getOtpTotpDriftSteps();
+            Long step = TotpCodeGenerator.getInstance().findMatchingStep(userId, operationId, code,
+                    System.currentTimeMillis() / stepMs, driftSteps);
+            if (step != null && replayDao.markConsumed(TotpCodeGenerator.replayKey(userId, operationId, step),
+                    toLocalDateTime((step + driftSteps + 1) * stepMs))) {
+                result = OtpCode.ValidationResult.VALID;
+            }
         }
-        otpCodeDao.updateStatus(otpCode.getId(), OtpCode.Status.USED);
-        logger.info("OTP code for operation {} successfully validated", operationId);
-        return true;
+        logValidationResult(operationId, result);
+        return result;
     }
     /**
-     * Обновляет статусы просроченных OTP кодов
+     * Обновляет статусы просроченных OTP кодов по всей таблице (запасная проверка к OtpExpiryTimer)
      */
     public void updateExpiredCodes() {
         logger.info("Updating expired OTP codes");
-        otpCodeDao.updateExpiredStatuses();
+        BatchJobRunner.run("expireOtpCodes", otpCodeDao::updateExpiredStatuses);
+        BatchJobRunner.run("purgeOtpReplay", replayDao::deleteExpired);
+        activeOtpStore.evictExpired();
+        ConsumedChallengeSet.getInstance().evictExpired();
     }
     /**
      * Удаляет все OTP коды, связанные с пользователем
@@ -110,7 +240,201 @@ public class OtpService {
      */
     public void deleteOtpCodesByUserId(Long userId) {
         logger.info("Deleting all OTP codes for user ID: {}", userId);
-        otpCodeDao.deleteByUserId(userId);
+        BatchJobRunner.run("deleteUserOtpCodes", limit -> otpCodeDao.deleteByUserId(userId, limit));
+        activeOtpStore.removeByUserId(userId);
+    }
+    /**
+     * Проверяет circuit breaker канала. Если канал разомкнут, возвращает true, когда можно перейти
+     * на резервный канал; иначе (кроме режима outbox, где доставка повторяется позже) сразу отказывает.
+     */
+    private boolean isFailoverNeeded(OtpCode.DeliveryChannel deliveryChannel, String fallbackRecipient) {
+        OtpDeliveryServiceFactory factory = OtpDeliveryServiceFactory.getInstance();
+        if (factory.isAvailable(deliveryChannel)) {
+            return false;
+        }
+        OtpCode.DeliveryChannel fallbackChannel = AppConfig.getDeliveryFallbackChannel(deliveryChannel);
+        if (fallbackChannel != null && fallbackRecipient != null && !fallbackRecipient.isEmpty()
+                && factory.isAvailable(fallbackChannel)) {
+            logger.warn("Delivery channel {} is unavailable, failing over to {}", deliveryChannel, fallbackChannel);
+            return true;
+        }
+        if (isOutboxDelivery()) {
+            return false;
+        }
+        throw new DeliveryUnavailableException(deliveryChannel);
+    }
+    /**
+     * Сохраняет код и запись otp_outbox в одной транзакции
+     */
+    private OtpDeliveryTicket generateAndEnqueueOutbox(Long userId, String operationId, String recipient,
+                                                       OtpCode.DeliveryChannel deliveryChannel,
+                                                       OtpDeliveryService deliveryService) {
+        if (!deliveryService.canDeliver(recipient)) {
+            logger.error("Cannot deliver OTP to recipient: {} via channel: {}", recipient, deliveryChannel);
+            throw new IllegalArgumentException("Cannot deliver OTP to this recipient via " + deliveryChannel);
+        }
+        OtpCode otpCode = buildOtp(userId, operationId, deliveryChannel);
+        Long outboxId;
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                otpCodeDao.save(connection, otpCode);
+                outboxId = outboxDao.insert(connection, otpCode.getId(), deliveryChannel, recipient);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error saving OTP code with outbox entry", e);
+            throw new RuntimeException("Error saving OTP code with outbox entry", e);
+        }
+        activeOtpStore.put(otpCode);
+        expiryTimer.schedule(otpCode);
+        logger.info("OTP code {} saved with outbox entry {}", otpCode.getId(), outboxId);
+        return new OtpDeliveryTicket(otpCode, String.valueOf(outboxId));
+    }
+    /**
+     * Создает код без сохранения (режимы totp и challenge) и передает его доставку в пул потоков канала.
+     * Неудачная доставка только логируется: код нигде не хранится, и отменять нечего
+     */
+    private OtpDeliveryTicket generateAndQueueStateless(Long userId, String operationId, String recipient,
+                                                        OtpCode.DeliveryChannel deliveryChannel,
+                                                        OtpDeliveryService deliveryService) {
+        OtpCode otpCode = buildDeliverableOtp(userId, operationId, recipient, deliveryChannel, deliveryService);
+        String deliveryId = UUID.randomUUID().toString();
+        AsyncDeliveryDispatcher.getInstance().submit(deliveryChannel, new DeliveryTask(otpCode, deliveryId, () -> {
+            try {
+                DeliveryResult result = deliveryService.deliver(recipient, otpCode.getCode());
+                if (result == DeliveryResult.SENT) {
+                    logger.info("OTP delivery {} sent via {}", deliveryId, deliveryChannel);
+                } else {
+                    logger.error("OTP delivery {} via {} failed ({})", deliveryId, deliveryChannel, result);
+                }
+            } catch (RuntimeException e) {
+                logger.error("OTP delivery {} via {} failed", deliveryId, deliveryChannel, e);
+            }
+        }, () -> { }));
+        logger.info("OTP delivery {} queued via {}", deliveryId, deliveryChannel);
+        return new OtpDeliveryTicket(otpCode, deliveryId);
+    }
+    /**
+     * Проверяет пользователя и получателя и создает код без сохранения
+     */
+    private OtpCode buildDeliverableOtp(Long userId, String operationId, String recipient,
+                                        OtpCode.DeliveryChannel deliveryChannel, OtpDeliveryService deliveryService) {
+        if (!deliveryService.canDeliver(recipient)) {
+            logger.error("Cannot deliver OTP to recipient: {} via channel: {}", recipient, deliveryChannel);
+            throw new IllegalArgumentException("Cannot deliver OTP to this recipient via " + deliveryChannel);
+        }
+        return buildOtp(userId, operationId, deliveryChannel);
+    }
+    /**
+     * Проверяет пользователя и создает новый активный код (без сохранения)
+     */
+    private OtpCode buildOtp(Long userId, String operationId, OtpCode.DeliveryChannel deliveryChannel) {
+        logger.info("Generating OTP for user ID: {}, operation: {}, channel: {}", userId, operationId, deliveryChannel);
+        Optional<User> userOptional = userService.getUserById(userId);
+        if (userOptional.isEmpty()) {
+            logger.error("User with ID {} not found", userId);
+            throw new IllegalArgumentException("User not found");
+        }
+        OtpConfig config = otpConfigService.getConfig();
+        String code;
+        LocalDateTime expiresAt;
+        if (isTotpMode()) {
+            long stepMs = config.getExpirationTimeMs();
+            long step = System.currentTimeMillis() / stepMs;
+            code = TotpCodeGenerator.getInstance().generate(userId, operationId, step, config.getLength());
+            expiresAt = toLocalDateTime((step + AppConfig.getOtpTotpDriftSteps() + 1) * stepMs);
+        } else {
+            code = generateOtpCode(config.getLength());
+            expiresAt = LocalDateTime.now().plusNanos(config.getExpirationTimeMs() * 1_000_000L);
+        }
+        return new OtpCode(
+                userId,
+                operationId,
+                code,
+                OtpCode.Status.ACTIVE,
+                deliveryChannel,
+                expiresAt
+        );
+    }
+    /**
+     * Проверяет пользователя и получателя, генерирует и сохраняет активный код
+     */
+    private OtpCode createOtp(Long userId, String operationId, String recipient,
+                              OtpCode.DeliveryChannel deliveryChannel, OtpDeliveryService deliveryService) {
+        OtpCode savedCode = otpCodeDao.save(buildOtp(userId, operationId, deliveryChannel));
+        logger.info("OTP code saved with ID: {}", savedCode.getId());
+        if (!deliveryService.canDeliver(recipient)) {
+            logger.error("Cannot deliver OTP to recipient: {} via channel: {}", recipient, deliveryChannel);
+            otpCodeDao.updateStatus(savedCode.getId(), OtpCode.Status.EXPIRED);
+            throw new IllegalArgumentException("Cannot deliver OTP to this recipient via " + deliveryChannel);
+        }
+        return savedCode;
+    }
+    /**
+     * Отправляет код в потоке канала доставки; при неудаче код сразу становится недействительным
+     */
+    private void deliver(OtpDeliveryService deliveryService, OtpCode otpCode, String recipient, String deliveryId) {
+        try {
+            DeliveryResult result = deliveryService.deliver(recipient, otpCode.getCode());
+            if (result == DeliveryResult.SENT) {
+                logger.info("OTP delivery {} sent via {}", deliveryId, otpCode.getDeliveryChannel());
+                return;
+            }
+            logger.error("OTP delivery {} via {} failed ({})", deliveryId, otpCode.getDeliveryChannel(), result);
+        } catch (RuntimeException e) {
+            logger.error("OTP delivery {} via {} failed", deliveryId, otpCode.getDeliveryChannel(), e);
+        }
+        expireUndelivered(otpCode);
+    }
+    private OtpCode.ValidationResult validateChallenge(Long userId, String operationId, String code, String challenge) {
+        logger.info("Validating OTP challenge for operation: {}", operationId);
+        OtpChallengeSigner.Challenge verified = challenge == null ? null
+                : OtpChallengeSigner.getInstance().verify(challenge, userId, operationId, code);
+        OtpCode.ValidationResult result;
+        if (verified == null) {
+            result = OtpCode.ValidationResult.NOT_FOUND;
+        } else if (verified.getExpiresAtMillis() <= System.currentTimeMillis()) {
+            result = OtpCode.ValidationResult.EXPIRED;
+        } else if (ConsumedChallengeSet.getInstance().consume(verified.getNonce(), verified.getExpiresAtMillis())) {
+            result = OtpCode.ValidationResult.VALID;
+        } else {
+            result = OtpCode.ValidationResult.NOT_FOUND;
+        }
+        logValidationResult(operationId, result);
+        return result;
+    }
+    private void logValidationResult(String operationId, OtpCode.ValidationResult result) {
+        switch (result) {
+            case VALID:
+                logger.info("OTP code for operation {} successfully validated", operationId);
+                break;
+            case EXPIRED:
+                logger.warn("OTP code for operation {} has expired", operationId);
+                break;
+            default:
+                logger.warn("Active OTP code not found for operation: {}", operationId);
+                break;
+        }
+    }
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+    /**
+     * Ошибка синхронной отправки: отказ получателя - ошибка запроса (400), остальное - ошибка сервиса
+     */
+    private static RuntimeException deliveryFailure(DeliveryResult result, OtpCode.DeliveryChannel deliveryChannel) {
+        if (result == DeliveryResult.RECIPIENT_ERROR) {
+            return new IllegalArgumentException("Recipient was rejected by " + deliveryChannel);
+        }
+        return new RuntimeException("Failed to send OTP code");
+    }
+    private void expireUndelivered(OtpCode otpCode) {
+        activeOtpStore.remove(otpCode.getOperationId(), otpCode.getId());
+        otpCodeDao.updateStatus(otpCode.getId(), OtpCode.Status.EXPIRED);
     }
     /**
      * Генерирует OTP код заданной длины
@@ -119,10 +443,6 @@ public class OtpService {
      * @return Сгенерированный код
      */
     private String generateOtpCode(int length) {
-        StringBuilder builder = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            builder.append(DIGITS.charAt(RANDOM.nextInt(DIGITS.length())));
-        }
-        return builder.toString();
+        return OtpCodeGenerator.generate(length);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.otpservice.service;
+import com.otpservice.config.AppConfig;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+/**
+ * Вычисление OTP-кодов по RFC 4226/6238 (HOTP от номера шага времени, HMAC-SHA256).
+ * Секрет пользователя выводится из мастер-ключа (otp.totp.master.key) как HMAC(мастер-ключ, userId),
+ * а ключ кода - как HMAC(секрет пользователя, operationId), поэтому код привязан к операции
+ * и ничего, кроме мастер-ключа, хранить не нужно.
+ * Для кодов до 9 цифр используется усечение из RFC 4226 (31 бит), для 10 цифр - 63 бита.
+ */
+final class TotpCodeGenerator {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_MASTER_KEY_LENGTH = 32;
+    private static final int MAX_RFC_DIGITS = 9;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L
+    };
+    private static TotpCodeGenerator instance;
+    private final SecretKeySpec masterKey;
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    });
+    private TotpCodeGenerator() {
+        String key = AppConfig.getOtpTotpMasterKey();
+        if (key == null || key.getBytes(StandardCharsets.UTF_8).length < MIN_MASTER_KEY_LENGTH) {
+            throw new IllegalStateException("otp.totp.master.key must be at least " + MIN_MASTER_KEY_LENGTH + " bytes");
+        }
+        this.masterKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+    static synchronized TotpCodeGenerator getInstance() {
+        if (instance == null) {
+            instance = new TotpCodeGenerator();
+        }
+        return instance;
+    }
+    /**
+     * Вычисляет код для шага времени
+     *
+     * @param userId ID пользователя
+     * @param operationId ID операции
+     * @param step Номер шага времени
+     * @param digits Длина кода (1-10)
+     * @return Код с ведущими нулями
+     */
+    String generate(Long userId, String operationId, long step, int digits) {
+        if (digits <= 0 || digits >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("OTP code length must be between 1 and " + (POWERS_OF_TEN.length - 1));
+        }
+        return codeForStep(operationKey(userId, operationId), step, digits);
+    }
+    /**
+     * Проверяет код на шагах step - driftSteps ... step + driftSteps
+     *
+     * @return Шаг, для которого код совпал, или null
+     */
+    Long findMatchingStep(Long userId, String operationId, String code, long step, int driftSteps) {
+        if (code.isEmpty() || code.length() >= POWERS_OF_TEN.length) {
+            return null;
+        }
+        SecretKeySpec key = operationKey(userId, operationId);
+        byte[] expected = code.getBytes(StandardCharsets.US_ASCII);
+        for (int drift = 0; drift <= driftSteps; drift++) {
+            if (matches(key, expected, step - drift)) {
+                return step - drift;
+            }
+            if (drift > 0 && matches(key, expected, step + drift)) {
+                return step + drift;
+            }
+        }
+        return null;
+    }
+    /**
+     * @return Ключ для таблицы использованных кодов: SHA-256 от (пользователь, операция, шаг)
+     */
+    static String replayKey(Long userId, String operationId, long step) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(("totp:" + userId + ":" + step + ":" + operationId).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    private SecretKeySpec operationKey(Long userId, String operationId) {
+        byte[] userSecret = hmac(masterKey, ("user:" + userId).getBytes(StandardCharsets.UTF_8));
+        return new SecretKeySpec(hmac(new SecretKeySpec(userSecret, ALGORITHM),
+                operationId.getBytes(StandardCharsets.UTF_8)), ALGORITHM);
+    }
+    private String codeForStep(SecretKeySpec operationKey, long step, int digits) {
+        byte[] hash = hmac(operationKey, ByteBuffer.allocate(Long.BYTES).putLong(step).array());
+        int offset = hash[hash.length - 1] & 0x0f;
+        ByteBuffer truncated = ByteBuffer.wrap(hash, offset, Long.BYTES);
+        long value = digits <= MAX_RFC_DIGITS ? truncated.getInt() & 0x7fffffff : truncated.getLong() & Long.MAX_VALUE;
+        value %= POWERS_OF_TEN[digits];
+        char[] code = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            code[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(code);
+    }
+    private boolean matches(SecretKeySpec operationKey, byte[] expected, long step) {
+        byte[] actual = codeForStep(operationKey, step, expected.length).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(actual, expected);
+    }
+    private byte[] hmac(SecretKeySpec key, byte[] data) {
+        Mac current = mac.get();
+        try {
+            current.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid OTP key", e);
+        }
+        return current.doFinal(data);
+    }
+} 
\ No newline at end of file
@@ -1,14 +1,21 @@
 package com.otpservice.service;
 import at.favre.lib.crypto.bcrypt.BCrypt;
+import com.otpservice.config.AppConfig;
 import com.otpservice.dao.UserDao;
 import com.otpservice.model.User;
+import com.otpservice.util.ExpiringCache;
 import com.otpservice.util.JwtUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    private static final long CACHE_TTL_MS = AppConfig.getUserCacheTtlMs();
+    private static final ExpiringCache<Long, User> USERS_BY_ID = new ExpiringCache<>(AppConfig.getUserCacheMaxSize());
+    private static final ExpiringCache<String, User> USERS_BY_USERNAME = new ExpiringCache<>(AppConfig.getUserCacheMaxSize());
     private final UserDao userDao;
     public UserService() {
         this.userDao = new UserDao();
@@ -71,6 +78,7 @@ public class UserService {
             throw new IllegalArgumentException("Cannot delete admin user");
         }
         boolean deleted = userDao.deleteById(userId);
+        invalidate(user);
         if (deleted) {
             logger.info("User with ID {} successfully deleted", userId);
         } else {
@@ -78,13 +86,49 @@ public class UserService {
         }
         return deleted;
     }
+    /**
+     * Ищет пользователя по имени, сначала в кэше, затем в базе данных
+     */
     public Optional<User> getUserByUsername(String username) {
+        User cached = USERS_BY_USERNAME.get(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
         logger.debug("Finding user by username: {}", username);
-        return userDao.findByUsername(username);
+        Optional<User> user = userDao.findByUsername(username);
+        user.ifPresent(UserService::cache);
+        return user;
     }
+    /**
+     * Ищет пользователя по ID, сначала в кэше, затем в базе данных
+     */
     public Optional<User> getUserById(Long userId) {
+        User cached = USERS_BY_ID.get(userId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
         logger.debug("Finding user by ID: {}", userId);
-        return userDao.findById(userId);
+        Optional<User> user = userDao.findById(userId);
+        user.ifPresent(UserService::cache);
+        return user;
+    }
+    /**
+     * @return Статистика кэшей пользователей
+     */
+    public static Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", USERS_BY_ID.getStats());
+        stats.put("byUsername", USERS_BY_USERNAME.getStats());
+        return stats;
+    }
+    private static void cache(User user) {
+        long expiresAt = System.currentTimeMillis() + CACHE_TTL_MS;
+        USERS_BY_ID.put(user.getId(), user, expiresAt);
+        USERS_BY_USERNAME.put(user.getUsername(), user, expiresAt);
+    }
+    private static void invalidate(User user) {
+        USERS_BY_ID.invalidate(user.getId());
+        USERS_BY_USERNAME.invalidate(user.getUsername());
     }
     private String hashPassword(String password) {
         return BCrypt.withDefaults().hashToString(12, password.toCharArray());
@@ -0,0 +1,167 @@
+package com.otpservice.service.delivery;
+import com.otpservice.config.AppConfig;
+import com.otpservice.model.OtpCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Асинхронная доставка OTP кодов: у каждого канала своя ограниченная очередь и свой пул потоков,
+ * поэтому медленный канал (например, SMTP) не задерживает HTTP-ответы и другие каналы.
+ * Размер очереди, число потоков и политика при переполнении задаются отдельно для каждого канала.
+ * Вытесненные (discard-oldest) и отброшенные при остановке задачи не пропадают молча: для каждой
+ * вызывается DeliveryTask.drop(), которое делает код недействительным.
+ */
+public class AsyncDeliveryDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDeliveryDispatcher.class);
+    private static AsyncDeliveryDispatcher instance;
+    private final Map<OtpCode.DeliveryChannel, ThreadPoolExecutor> executors = new EnumMap<>(OtpCode.DeliveryChannel.class);
+    private final Map<OtpCode.DeliveryChannel, LongAdder> rejectedCounts = new EnumMap<>(OtpCode.DeliveryChannel.class);
+    private AsyncDeliveryDispatcher() {
+        for (OtpCode.DeliveryChannel channel : OtpCode.DeliveryChannel.values()) {
+            int threads = AppConfig.getDeliveryThreads(channel);
+            int queueCapacity = AppConfig.getDeliveryQueueCapacity(channel);
+            String rejectionPolicy = AppConfig.getDeliveryRejectionPolicy(channel);
+            LongAdder rejected = new LongAdder();
+            rejectedCounts.put(channel, rejected);
+            executors.put(channel, new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new ChannelThreadFactory(channel),
+                    createRejectionHandler(rejectionPolicy, rejected)));
+            logger.info("Delivery executor for {}: threads={}, queue={}, rejection={}",
+                    channel, threads, queueCapacity, rejectionPolicy);
+        }
+    }
+    /**
+     * Получить экземпляр диспетчера
+     */
+    public static synchronized AsyncDeliveryDispatcher getInstance() {
+        if (instance == null) {
+            instance = new AsyncDeliveryDispatcher();
+        }
+        return instance;
+    }
+    /**
+     * Ставит доставку в очередь канала
+     *
+     * @param channel Канал доставки
+     * @param task Задача доставки
+     * @throws java.util.concurrent.RejectedExecutionException если очередь канала переполнена
+     *         и политика канала - reject
+     */
+    public void submit(OtpCode.DeliveryChannel channel, DeliveryTask task) {
+        executors.get(channel).execute(task);
+    }
+    /**
+     * Останавливает прием задач и ждет завершения уже поставленных
+     *
+     * @param timeoutSeconds Максимальное время ожидания
+     */
+    public void shutdown(long timeoutSeconds) {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        for (Map.Entry<OtpCode.DeliveryChannel, ThreadPoolExecutor> entry : executors.entrySet()) {
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (!entry.getValue().awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                    List<Runnable> pending = entry.getValue().shutdownNow();
+                    logger.warn("{} pending {} deliveries dropped at shutdown", pending.size(), entry.getKey());
+                    for (Runnable task : pending) {
+                        drop(task);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    /**
+     * @return Состояние очереди и пула каждого канала
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<OtpCode.DeliveryChannel, ThreadPoolExecutor> entry : executors.entrySet()) {
+            ThreadPoolExecutor executor = entry.getValue();
+            Map<String, Object> channelStats = new LinkedHashMap<>();
+            channelStats.put("threads", executor.getMaximumPoolSize());
+            channelStats.put("active", executor.getActiveCount());
+            channelStats.put("queued", executor.getQueue().size());
+            channelStats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+            channelStats.put("completed", executor.getCompletedTaskCount());
+            channelStats.put("rejected", rejectedCounts.get(entry.getKey()).sum());
+            stats.put(entry.getKey().name(), channelStats);
+        }
+        return stats;
+    }
+    private static RejectedExecutionHandler createRejectionHandler(String policy, LongAdder rejected) {
+        RejectedExecutionHandler handler;
+        switch (policy.toLowerCase()) {
+            case "caller-runs":
+                handler = new ThreadPoolExecutor.CallerRunsPolicy();
+                break;
+            case "discard-oldest":
+                handler = (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        return;
+                    }
+                    Runnable oldest = executor.getQueue().poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                    executor.execute(runnable);
+                };
+                break;
+            case "reject":
+                handler = new ThreadPoolExecutor.AbortPolicy();
+                break;
+            default:
+                logger.warn("Unknown delivery rejection policy '{}', using reject", policy);
+                handler = new ThreadPoolExecutor.AbortPolicy();
+                break;
+        }
+        return (runnable, executor) -> {
+            rejected.increment();
+            handler.rejectedExecution(runnable, executor);
+        };
+    }
+    /**
+     * Отменяет доставку, которая не будет выполнена, и логирует ее ID
+     */
+    private static void drop(Runnable runnable) {
+        if (!(runnable instanceof DeliveryTask)) {
+            return;
+        }
+        DeliveryTask task = (DeliveryTask) runnable;
+        logger.warn("OTP delivery {} via {} dropped before sending", task.getDeliveryId(),
+                task.getOtpCode().getDeliveryChannel());
+        try {
+            task.drop();
+        } catch (RuntimeException e) {
+            logger.error("Error cancelling dropped OTP delivery {}", task.getDeliveryId(), e);
+        }
+    }
+    private static class ChannelThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+        ChannelThreadFactory(OtpCode.DeliveryChannel channel) {
+            this.prefix = "delivery-" + channel.name().toLowerCase() + "-";
+        }
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.otpservice.service.delivery;
+import com.otpservice.model.OtpCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+/**
+ * Circuit breaker вокруг сервиса доставки.
+ * Результаты последних вызовов хранятся в кольцевом окне; если доля неудачных или медленных вызовов
+ * превышает порог, канал размыкается и вызовы сразу завершаются неудачей. Ошибки получателя
+ * (DeliveryResult.RECIPIENT_ERROR) говорят о том, что канал отвечает, и неудачами не считаются. После паузы канал пропускает
+ * несколько пробных вызовов (HALF_OPEN) и замыкается снова, если все они прошли успешно.
+ */
+public class CircuitBreakerDeliveryService implements OtpDeliveryService {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakerDeliveryService.class);
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    private final OtpCode.DeliveryChannel channel;
+    private final OtpDeliveryService delegate;
+    private final int minCalls;
+    private final int failureRateThreshold;
+    private final long slowCallNanos;
+    private final int slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final byte[] window;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailures;
+    private int windowSlowCalls;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private Instant openedAtInstant;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long rejectedCalls;
+    private long totalCalls;
+    private long totalFailures;
+    public CircuitBreakerDeliveryService(OtpCode.DeliveryChannel channel, OtpDeliveryService delegate, int windowSize,
+                                         int minCalls, int failureRateThreshold, long slowCallMs,
+                                         int slowCallRateThreshold, long openMs, int halfOpenCalls) {
+        this.channel = channel;
+        this.delegate = delegate;
+        this.window = new byte[windowSize];
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.halfOpenCalls = halfOpenCalls;
+    }
+    @Override
+    public boolean sendOtp(String recipient, String code) {
+        return deliver(recipient, code) == DeliveryResult.SENT;
+    }
+    @Override
+    public DeliveryResult deliver(String recipient, String code) {
+        if (!tryAcquirePermission()) {
+            logger.warn("Circuit for {} is open, failing delivery fast", channel);
+            return DeliveryResult.FAILED;
+        }
+        long start = System.nanoTime();
+        DeliveryResult result = DeliveryResult.FAILED;
+        try {
+            result = delegate.deliver(recipient, code);
+            return result;
+        } finally {
+            onResult(result != DeliveryResult.FAILED, System.nanoTime() - start);
+        }
+    }
+    @Override
+    public void initialize() {
+        delegate.initialize();
+    }
+    @Override
+    public boolean isReady() {
+        return delegate.isReady();
+    }
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+    @Override
+    public boolean canDeliver(String recipient) {
+        return delegate.canDeliver(recipient);
+    }
+    /**
+     * @return Обернутый сервис доставки
+     */
+    public OtpDeliveryService getDelegate() {
+        return delegate;
+    }
+    /**
+     * @return true, если канал сейчас принимает вызовы (замкнут, или пауза после размыкания истекла)
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (state) {
+            case OPEN:
+                return System.nanoTime() - openedAt >= openNanos;
+            case HALF_OPEN:
+                return halfOpenPermits > 0;
+            default:
+                return true;
+        }
+    }
+    /**
+     * @return Состояние канала и статистика окна
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("windowCalls", windowCalls);
+        stats.put("failureRate", windowCalls == 0 ? 0 : windowFailures * 100 / windowCalls);
+        stats.put("slowCallRate", windowCalls == 0 ? 0 : windowSlowCalls * 100 / windowCalls);
+        stats.put("totalCalls", totalCalls);
+        stats.put("totalFailures", totalFailures);
+        stats.put("rejectedCalls", rejectedCalls);
+        if (state != State.CLOSED) {
+            stats.put("openedAt", openedAtInstant.toString());
+        }
+        return stats;
+    }
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            logger.info("Circuit for {} is half-open, allowing {} trial calls", channel, halfOpenCalls);
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && halfOpenPermits == 0)) {
+            rejectedCalls++;
+            return false;
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits--;
+        }
+        return true;
+    }
+    /**
+     * @param success false только для отказа канала (включая исключения и таймауты делегата)
+     */
+    private synchronized void onResult(boolean success, long durationNanos) {
+        totalCalls++;
+        if (!success) {
+            totalFailures++;
+        }
+        boolean slow = durationNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (!success || slow) {
+                open("trial call " + (success ? "was slow" : "failed"));
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                logger.info("Circuit for {} is closed again", channel);
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        byte outcome = (byte) ((success ? 0 : 1) | (slow ? 2 : 0));
+        if (windowCalls == window.length) {
+            byte evicted = window[windowPosition];
+            windowFailures -= evicted & 1;
+            windowSlowCalls -= (evicted >> 1) & 1;
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = outcome;
+        windowPosition = (windowPosition + 1) % window.length;
+        windowFailures += outcome & 1;
+        windowSlowCalls += (outcome >> 1) & 1;
+        if (windowCalls < minCalls) {
+            return;
+        }
+        int failureRate = windowFailures * 100 / windowCalls;
+        int slowCallRate = windowSlowCalls * 100 / windowCalls;
+        if (failureRate >= failureRateThreshold) {
+            open("failure rate " + failureRate + "%");
+        } else if (slowCallRate >= slowCallRateThreshold) {
+            open("slow call rate " + slowCallRate + "%");
+        }
+    }
+    private void open(String reason) {
+        logger.error("Circuit for {} is open: {}", channel, reason);
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        openedAtInstant = Instant.now();
+        halfOpenPermits = 0;
+        resetWindow();
+    }
+    private void resetWindow() {
+        windowPosition = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+        windowSlowCalls = 0;
+    }
+} 
\ No newline at end of file
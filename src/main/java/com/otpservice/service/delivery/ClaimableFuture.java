@@ -0,0 +1,38 @@
+package com.otpservice.service.delivery;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * Результат сообщения, ждущего отправки в очереди. Поток отправки захватывает сообщение (claim())
+ * непосредственно перед отправкой; после этого cancel() вызывающего кода возвращает false,
+ * и вызывающий код должен дождаться настоящего результата, а не считать сообщение неотправленным.
+ */
+final class ClaimableFuture<T> extends CompletableFuture<T> {
+    private static final int QUEUED = 0;
+    private static final int SENDING = 1;
+    private static final int CANCELLED = 2;
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+    /**
+     * Захватывает сообщение для отправки
+     *
+     * @return false, если сообщение уже отменено или завершено и отправлять его не нужно
+     */
+    boolean claim() {
+        return !isDone() && state.compareAndSet(QUEUED, SENDING);
+    }
+    /**
+     * Возвращает захваченное сообщение в очередь (например, перед повторной отправкой),
+     * после чего его снова можно отменить
+     */
+    void release() {
+        state.compareAndSet(SENDING, QUEUED);
+    }
+    /**
+     * Отменяет сообщение, если поток отправки его еще не захватил
+     *
+     * @return false, если сообщение уже отправляется или завершено
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return state.compareAndSet(QUEUED, CANCELLED) && super.cancel(mayInterruptIfRunning);
+    }
+} 
\ No newline at end of file
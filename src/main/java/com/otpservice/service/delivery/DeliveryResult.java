@@ -0,0 +1,9 @@
+package com.otpservice.service.delivery;
+/**
+ * Результат отправки OTP-кода. RECIPIENT_ERROR отделяет ошибки получателя (неверный адрес, несуществующий чат,
+ * бот заблокирован пользователем) от отказов самого канала: канал при этом работает, и circuit breaker
+ * не считает такую отправку неудачной.
+ */
+public enum DeliveryResult {
+    SENT, RECIPIENT_ERROR, FAILED
+} 
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.otpservice.service.delivery;
+import com.otpservice.model.OtpCode;
+/**
+ * Задача доставки OTP кода в очереди канала. Кроме самой отправки несет код, ID доставки
+ * и действие на случай, если задача вытеснена из переполненной очереди или отброшена при остановке
+ * и код так и не будет отправлен.
+ */
+public final class DeliveryTask implements Runnable {
+    private final OtpCode otpCode;
+    private final String deliveryId;
+    private final Runnable delivery;
+    private final Runnable onDropped;
+    public DeliveryTask(OtpCode otpCode, String deliveryId, Runnable delivery, Runnable onDropped) {
+        this.otpCode = otpCode;
+        this.deliveryId = deliveryId;
+        this.delivery = delivery;
+        this.onDropped = onDropped;
+    }
+    @Override
+    public void run() {
+        delivery.run();
+    }
+    /**
+     * Вызывается вместо run(), если доставка отменена
+     */
+    void drop() {
+        onDropped.run();
+    }
+    public OtpCode getOtpCode() {
+        return otpCode;
+    }
+    public String getDeliveryId() {
+        return deliveryId;
+    }
+} 
\ No newline at end of file
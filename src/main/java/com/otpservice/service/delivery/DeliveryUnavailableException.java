@@ -0,0 +1,16 @@
+package com.otpservice.service.delivery;
+import com.otpservice.model.OtpCode;
+/**
+ * Канал доставки временно недоступен (circuit breaker разомкнут)
+ */
+public class DeliveryUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final OtpCode.DeliveryChannel channel;
+    public DeliveryUnavailableException(OtpCode.DeliveryChannel channel) {
+        super("Delivery channel " + channel + " is temporarily unavailable");
+        this.channel = channel;
+    }
+    public OtpCode.DeliveryChannel getChannel() {
+        return channel;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.otpservice.service.delivery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Пакетная отправка писем: письма накапливаются не дольше lingerMs (или до maxBatchSize штук)
+ * и отправляются подряд через одну SMTP-сессию из пула. Результат каждого письма
+ * возвращается вызывающему коду через отдельный ClaimableFuture. Поток отправки захватывает каждое письмо
+ * непосредственно перед его отправкой: отмененное до этого письмо пропускается, а захваченное
+ * отменить уже нельзя, и вызывающий код дожидается результата его отправки.
+ */
+class EmailBatchSender {
+    private static final Logger logger = LoggerFactory.getLogger(EmailBatchSender.class);
+    private static final long IDLE_POLL_MS = 100;
+    private final SmtpTransportPool transportPool;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<PendingMessage> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService flushers;
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder messageCount = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+    private volatile boolean running = true;
+    EmailBatchSender(SmtpTransportPool transportPool, int flusherCount, int maxBatchSize, long lingerMs) {
+        this.transportPool = transportPool;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        AtomicInteger counter = new AtomicInteger();
+        this.flushers = Executors.newFixedThreadPool(flusherCount, runnable -> {
+            Thread thread = new Thread(runnable, "email-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < flusherCount; i++) {
+            flushers.execute(this::flushLoop);
+        }
+    }
+    /**
+     * Ставит письмо в очередь на пакетную отправку
+     *
+     * @param message Письмо (после saveChanges())
+     * @return Future, завершающийся после отправки письма или с ошибкой его отправки;
+     *         cancel() снимает письмо с отправки и возвращает false, если письмо уже отправляется
+     */
+    ClaimableFuture<Void> submit(MimeMessage message) {
+        ClaimableFuture<Void> result = new ClaimableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new MessagingException("Email batch sender is stopped"));
+            return result;
+        }
+        queue.add(new PendingMessage(message, result));
+        return result;
+    }
+    /**
+     * Отправляет уже поставленные письма и останавливает потоки отправки
+     *
+     * @param timeoutSeconds Максимальное время ожидания
+     */
+    void close(long timeoutSeconds) {
+        running = false;
+        flushers.shutdown();
+        try {
+            if (!flushers.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                flushers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flushers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        PendingMessage pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new MessagingException("Email batch sender is stopped"));
+        }
+    }
+    /**
+     * @return Количество отправленных пакетов, писем в них и писем, снятых с отправки
+     */
+    Map<String, Object> getStats() {
+        long batches = batchCount.sum();
+        long messages = messageCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("batches", batches);
+        stats.put("messages", messages);
+        stats.put("averageBatchSize", batches == 0 ? 0.0 : (double) messages / batches);
+        stats.put("cancelled", cancelledCount.sum());
+        return stats;
+    }
+    private void flushLoop() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingMessage first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingMessage next = queue.poll(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (PendingMessage pending : batch) {
+                pending.result.completeExceptionally(new MessagingException("Email batch sender is stopped"));
+            }
+        }
+    }
+    private void flush(List<PendingMessage> batch) {
+        int size = batch.size();
+        batch.removeIf(pending -> pending.result.isDone());
+        if (batch.isEmpty()) {
+            cancelledCount.add(size);
+            return;
+        }
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            messages.add(pending.message);
+        }
+        AtomicInteger skipped = new AtomicInteger();
+        try {
+            List<MessagingException> errors = transportPool.sendBatch(messages, index -> {
+                if (batch.get(index).result.claim()) {
+                    return true;
+                }
+                skipped.incrementAndGet();
+                return false;
+            });
+            cancelledCount.add(size - batch.size() + skipped.get());
+            for (int i = 0; i < batch.size(); i++) {
+                if (errors.get(i) == null) {
+                    batch.get(i).result.complete(null);
+                } else {
+                    batch.get(i).result.completeExceptionally(errors.get(i));
+                }
+            }
+        } catch (MessagingException | RuntimeException e) {
+            logger.error("Error sending batch of {} emails", batch.size(), e);
+            for (PendingMessage pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+        batchCount.increment();
+        messageCount.add(batch.size() - skipped.get());
+    }
+    private static final class PendingMessage {
+        private final MimeMessage message;
+        private final ClaimableFuture<Void> result;
+        PendingMessage(MimeMessage message, ClaimableFuture<Void> result) {
+            this.message = message;
+            this.result = result;
+        }
+    }
+} 
\ No newline at end of file
@@ -6,14 +6,21 @@ import javax.mail.Authenticator;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
-import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 /**
- * Сервис для отправки OTP-кодов по электронной почте
+ * Сервис для отправки OTP-кодов по электронной почте.
+ * Письма отправляются через пул долгоживущих SMTP-соединений (см. SmtpTransportPool),
+ * а при mail.batch.enabled=true - пакетами через EmailBatchSender.
  */
 public class EmailOtpDeliveryService implements OtpDeliveryService {
     private static final Logger logger = LoggerFactory.getLogger(EmailOtpDeliveryService.class);
@@ -24,12 +31,19 @@ public class EmailOtpDeliveryService implements OtpDeliveryService {
     );
     private final Session session;
     private final String sender;
+    private final SmtpTransportPool transportPool;
+    private final EmailBatchSender batchSender;
+    private final long batchSendTimeoutMs;
+    private volatile boolean ready;
     public EmailOtpDeliveryService() {
         Properties props = new Properties();
         props.put("mail.smtp.host", AppConfig.getMailSmtpHost());
         props.put("mail.smtp.port", AppConfig.getMailSmtpPort());
         props.put("mail.smtp.auth", AppConfig.getMailSmtpAuth());
         props.put("mail.smtp.starttls.enable", AppConfig.getMailSmtpStartTlsEnable());
+        props.put("mail.smtp.connectiontimeout", AppConfig.getMailSmtpTimeoutMs());
+        props.put("mail.smtp.timeout", AppConfig.getMailSmtpTimeoutMs());
+        props.put("mail.smtp.writetimeout", AppConfig.getMailSmtpTimeoutMs());
         sender = AppConfig.getMailUsername();
         final String password = AppConfig.getMailPassword();
         session = Session.getInstance(props, new Authenticator() {
@@ -38,28 +52,126 @@ public class EmailOtpDeliveryService implements OtpDeliveryService {
                 return new PasswordAuthentication(sender, password);
             }
         });
-        logger.info("Email OTP delivery service initialized with sender: {}", sender);
+        transportPool = new SmtpTransportPool(session, AppConfig.getMailSmtpPoolSize(),
+                AppConfig.getMailSmtpPoolMaxMessagesPerConnection(), AppConfig.getMailSmtpPoolValidateAfterIdleMs(),
+                AppConfig.getMailSmtpPoolBorrowTimeoutMs());
+        if (AppConfig.isMailBatchEnabled()) {
+            batchSender = new EmailBatchSender(transportPool, AppConfig.getMailSmtpPoolSize(),
+                    AppConfig.getMailBatchMaxSize(), AppConfig.getMailBatchLingerMs());
+            batchSendTimeoutMs = AppConfig.getMailBatchLingerMs() + AppConfig.getMailSmtpPoolBorrowTimeoutMs()
+                    + (long) AppConfig.getMailSmtpTimeoutMs() * (AppConfig.getMailBatchMaxSize() + 1);
+        } else {
+            batchSender = null;
+            batchSendTimeoutMs = 0;
+        }
+        logger.info("Email OTP delivery service initialized with sender: {}, SMTP pool size: {}, batching: {}",
+                sender, AppConfig.getMailSmtpPoolSize(), batchSender != null);
     }
     @Override
     public boolean sendOtp(String recipient, String code) {
+        return deliver(recipient, code) == DeliveryResult.SENT;
+    }
+    /**
+     * Отправляет письмо с кодом. Отказ SMTP-сервера принять адрес (SendFailedException) и неверный адрес
+     * считаются ошибкой получателя, остальные ошибки и таймауты - отказом канала
+     */
+    @Override
+    public DeliveryResult deliver(String recipient, String code) {
         logger.info("Sending OTP code to email: {}", recipient);
         if (!isValidEmail(recipient)) {
             logger.warn("Invalid email address: {}", recipient);
-            return false;
+            return DeliveryResult.RECIPIENT_ERROR;
         }
+        ClaimableFuture<Void> batchResult = null;
         try {
             MimeMessage message = new MimeMessage(session);
             message.setFrom(new InternetAddress(sender));
             message.addRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
             message.setSubject(EMAIL_SUBJECT);
             message.setText(String.format(EMAIL_TEMPLATE, code));
-            Transport.send(message);
+            message.saveChanges();
+            if (batchSender != null) {
+                batchResult = batchSender.submit(message);
+                batchResult.get(batchSendTimeoutMs, TimeUnit.MILLISECONDS);
+            } else {
+                transportPool.send(message);
+            }
             logger.info("OTP code successfully sent to email: {}", recipient);
-            return true;
+            return DeliveryResult.SENT;
         } catch (MessagingException e) {
             logger.error("Error sending OTP code to email: {}", recipient, e);
-            return false;
+            return toFailureResult(e);
+        } catch (ExecutionException e) {
+            logger.error("Error sending OTP code to email: {}", recipient, e.getCause());
+            return toFailureResult(e.getCause());
+        } catch (TimeoutException e) {
+            if (batchResult.cancel(false)) {
+                logger.error("Timed out sending OTP code to email: {}", recipient);
+                return DeliveryResult.FAILED;
+            }
+            logger.warn("OTP email to {} is already being sent, waiting for the SMTP result", recipient);
+            return awaitClaimed(batchResult, recipient);
+        } catch (InterruptedException e) {
+            batchResult.cancel(false);
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while sending OTP code to email: {}", recipient);
+            return DeliveryResult.FAILED;
+        }
+    }
+    /**
+     * Ждет результат письма, которое поток пакетной отправки уже захватил. Ожидание ограничено
+     * таймаутами SMTP (mail.smtp.connectiontimeout, timeout, writetimeout) одного письма
+     */
+    private DeliveryResult awaitClaimed(ClaimableFuture<Void> batchResult, String recipient) {
+        try {
+            batchResult.get();
+            logger.info("OTP code successfully sent to email: {}", recipient);
+            return DeliveryResult.SENT;
+        } catch (ExecutionException e) {
+            logger.error("Error sending OTP code to email: {}", recipient, e.getCause());
+            return toFailureResult(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while sending OTP code to email: {}", recipient);
+            return DeliveryResult.FAILED;
+        }
+    }
+    private static DeliveryResult toFailureResult(Throwable error) {
+        return error instanceof SendFailedException ? DeliveryResult.RECIPIENT_ERROR : DeliveryResult.FAILED;
+    }
+    /**
+     * Заранее открывает одно SMTP-соединение, чтобы первый запрос не тратил время на подключение
+     */
+    @Override
+    public void initialize() {
+        try {
+            transportPool.warmUp();
+            ready = true;
+        } catch (MessagingException e) {
+            logger.error("Cannot connect to SMTP server {}:{}", AppConfig.getMailSmtpHost(), AppConfig.getMailSmtpPort(), e);
+            ready = false;
+        }
+    }
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+    @Override
+    public void shutdown() {
+        if (batchSender != null) {
+            batchSender.close(5);
+        }
+        transportPool.close();
+    }
+    /**
+     * @return Состояние пула SMTP-соединений и пакетной отправки
+     */
+    public Map<String, Object> getTransportPoolStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(transportPool.getStats());
+        if (batchSender != null) {
+            stats.put("batching", batchSender.getStats());
         }
+        return stats;
     }
     @Override
     public boolean canDeliver(String recipient) {
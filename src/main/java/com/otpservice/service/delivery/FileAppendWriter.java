@@ -0,0 +1,230 @@
+package com.otpservice.service.delivery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * Дозапись строк в файлы одним фоновым потоком.
+ * Записи передаются через неблокирующую очередь; поток забирает их пачками, записи одного файла
+ * объединяет в одну операцию записи и держит открытыми последние использованные файлы (LRU).
+ * Политика fsync: none - без сброса на диск, batch - сброс после каждой пачки до подтверждения записей,
+ * interval - сброс измененных файлов не чаще одного раза за интервал.
+ */
+class FileAppendWriter {
+    private static final Logger logger = LoggerFactory.getLogger(FileAppendWriter.class);
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    enum FsyncPolicy {
+        NONE, BATCH, INTERVAL
+    }
+    private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final Map<Path, FileChannel> openFiles;
+    private final Set<FileChannel> dirtyFiles = new HashSet<>();
+    private final Set<Path> knownDirectories = new HashSet<>();
+    private final Thread writerThread;
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder fsyncCount = new LongAdder();
+    private volatile boolean running = true;
+    private long lastFsyncAt = System.nanoTime();
+    FileAppendWriter(FsyncPolicy fsyncPolicy, long fsyncIntervalMs, int maxOpenFiles) {
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.openFiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, FileChannel> eldest) {
+                if (size() <= maxOpenFiles) {
+                    return false;
+                }
+                closeFile(eldest.getValue());
+                return true;
+            }
+        };
+        this.writerThread = new Thread(this::writeLoop, "file-otp-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    /**
+     * Ставит строку в очередь на дозапись в файл
+     *
+     * @param file Файл
+     * @param line Строка (вместе с переводом строки)
+     * @return Future, завершающийся true после записи (и сброса на диск при политике batch) или false при ошибке
+     */
+    CompletableFuture<Boolean> append(Path file, byte[] line) {
+        PendingWrite write = new PendingWrite(file, line);
+        if (!running) {
+            write.result.complete(false);
+            return write.result;
+        }
+        queue.add(write);
+        LockSupport.unpark(writerThread);
+        return write.result;
+    }
+    boolean isRunning() {
+        return running;
+    }
+    /**
+     * Дописывает оставшиеся записи, сбрасывает и закрывает файлы
+     */
+    void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * @return Счетчики записей, пачек и fsync
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fsyncPolicy", fsyncPolicy.name().toLowerCase());
+        stats.put("writes", writeCount.sum());
+        stats.put("batches", batchCount.sum());
+        stats.put("fsyncs", fsyncCount.sum());
+        return stats;
+    }
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            PendingWrite write;
+            while (batch.size() < MAX_BATCH && (write = queue.poll()) != null) {
+                batch.add(write);
+            }
+            if (batch.isEmpty()) {
+                if (fsyncPolicy == FsyncPolicy.INTERVAL && !dirtyFiles.isEmpty()
+                        && System.nanoTime() - lastFsyncAt >= fsyncIntervalNanos) {
+                    fsyncDirtyFiles();
+                }
+                LockSupport.parkNanos(this, fsyncPolicy == FsyncPolicy.INTERVAL && !dirtyFiles.isEmpty()
+                        ? Math.min(IDLE_PARK_NANOS, fsyncIntervalNanos) : IDLE_PARK_NANOS);
+                continue;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+        fsyncDirtyFiles();
+        for (FileChannel channel : openFiles.values()) {
+            closeFile(channel);
+        }
+        openFiles.clear();
+    }
+    private void writeBatch(List<PendingWrite> batch) {
+        Map<Path, List<PendingWrite>> byFile = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            byFile.computeIfAbsent(write.file, file -> new ArrayList<>()).add(write);
+        }
+        List<PendingWrite> written = new ArrayList<>(batch.size());
+        for (Map.Entry<Path, List<PendingWrite>> entry : byFile.entrySet()) {
+            List<PendingWrite> writes = entry.getValue();
+            ByteBuffer[] buffers = new ByteBuffer[writes.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = ByteBuffer.wrap(writes.get(i).line);
+            }
+            try {
+                FileChannel channel = openFile(entry.getKey());
+                while (buffers[buffers.length - 1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                dirtyFiles.add(channel);
+                written.addAll(writes);
+            } catch (IOException e) {
+                logger.error("Error writing OTP codes to file: {}", entry.getKey(), e);
+                FileChannel channel = openFiles.remove(entry.getKey());
+                if (channel != null) {
+                    closeFile(channel);
+                }
+                complete(writes, false);
+            }
+        }
+        boolean durable = true;
+        if (fsyncPolicy == FsyncPolicy.BATCH
+                || (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastFsyncAt >= fsyncIntervalNanos)) {
+            durable = fsyncDirtyFiles() || fsyncPolicy != FsyncPolicy.BATCH;
+        } else if (fsyncPolicy == FsyncPolicy.NONE) {
+            dirtyFiles.clear();
+        }
+        complete(written, durable);
+        writeCount.add(written.size());
+        batchCount.increment();
+    }
+    private FileChannel openFile(Path file) throws IOException {
+        FileChannel channel = openFiles.get(file);
+        if (channel != null) {
+            return channel;
+        }
+        Path parent = file.getParent();
+        if (parent != null && knownDirectories.add(parent)) {
+            try {
+                Files.createDirectories(parent);
+            } catch (IOException e) {
+                knownDirectories.remove(parent);
+                throw e;
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        openFiles.put(file, channel);
+        return channel;
+    }
+    private boolean fsyncDirtyFiles() {
+        boolean success = true;
+        for (FileChannel channel : dirtyFiles) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                logger.error("Error syncing OTP file to disk", e);
+                success = false;
+            }
+        }
+        if (!dirtyFiles.isEmpty()) {
+            fsyncCount.increment();
+        }
+        dirtyFiles.clear();
+        lastFsyncAt = System.nanoTime();
+        return success;
+    }
+    private void closeFile(FileChannel channel) {
+        try {
+            if (dirtyFiles.remove(channel) && fsyncPolicy == FsyncPolicy.BATCH) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Error closing OTP file", e);
+        }
+    }
+    private static void complete(List<PendingWrite> writes, boolean success) {
+        for (PendingWrite write : writes) {
+            write.result.complete(success);
+        }
+    }
+    private static final class PendingWrite {
+        private final Path file;
+        private final byte[] line;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        PendingWrite(Path file, byte[] line) {
+            this.file = file;
+            this.line = line;
+        }
+    }
+} 
\ No newline at end of file
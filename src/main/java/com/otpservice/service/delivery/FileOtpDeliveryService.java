@@ -1,71 +1,116 @@
 package com.otpservice.service.delivery;
+import com.otpservice.config.AppConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 /**
- * Сервис для сохранения OTP-кодов в файл
+ * Сервис для сохранения OTP-кодов в файл.
+ * Запись выполняет один фоновый поток FileAppendWriter, который держит файлы открытыми
+ * и сбрасывает их на диск согласно file.delivery.fsync.
  */
 public class FileOtpDeliveryService implements OtpDeliveryService {
     private static final Logger logger = LoggerFactory.getLogger(FileOtpDeliveryService.class);
-    private static final String OTP_FILES_DIR = "otp_files";
     private static final String OTP_FILE_NAME = "otp_codes.txt";
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final Path directory;
+    private final boolean directoryWritable;
+    private final long awaitMs;
+    private final FileAppendWriter writer;
+    public FileOtpDeliveryService() {
+        directory = Paths.get(AppConfig.getFileDeliveryDir());
+        directoryWritable = prepareDirectory(directory);
+        awaitMs = AppConfig.getFileDeliveryAwaitMs();
+        writer = new FileAppendWriter(parseFsyncPolicy(AppConfig.getFileDeliveryFsync()),
+                AppConfig.getFileDeliveryFsyncIntervalMs(), AppConfig.getFileDeliveryMaxOpenFiles());
+        logger.info("File OTP delivery service initialized: dir {}, fsync {}", directory.toAbsolutePath(),
+                AppConfig.getFileDeliveryFsync());
+    }
     @Override
     public boolean sendOtp(String recipient, String code) {
-        logger.info("Saving OTP code for recipient: {}", recipient);
-        String fileName = OTP_FILES_DIR + "/" + (recipient != null && !recipient.isEmpty() ? 
-                recipient.replace("@", "_otp_code_") : OTP_FILE_NAME);
+        Path file = resolveFile(recipient);
+        if (file == null) {
+            logger.warn("Invalid file recipient: {}", recipient);
+            return false;
+        }
+        String line = String.format("[%s] OTP code: %s\n", LocalDateTime.now().format(formatter), code);
         try {
-            Files.createDirectories(Paths.get(OTP_FILES_DIR));
-            File file = new File(fileName);
-            Path parentPath = file.toPath().getParent();
-            if (parentPath != null) {
-                Files.createDirectories(parentPath);
-            }
-            try (FileWriter writer = new FileWriter(file, true)) {
-                String timestamp = LocalDateTime.now().format(formatter);
-                writer.write(String.format("[%s] OTP code: %s\n", timestamp, code));
-                logger.info("OTP code successfully saved to file: {}", file.getAbsolutePath());
-                return true;
+            boolean saved = writer.append(file, line.getBytes(StandardCharsets.UTF_8))
+                    .get(awaitMs, TimeUnit.MILLISECONDS);
+            if (saved) {
+                logger.debug("OTP code successfully saved to file: {}", file);
             }
-        } catch (IOException e) {
-            logger.error("Error saving OTP code to file", e);
+            return saved;
+        } catch (TimeoutException e) {
+            logger.error("Timed out saving OTP code to file: {}", file);
+            return false;
+        } catch (ExecutionException e) {
+            logger.error("Error saving OTP code to file: {}", file, e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
     }
     @Override
     public boolean canDeliver(String recipient) {
-        String fileName = OTP_FILES_DIR + "/" + (recipient != null && !recipient.isEmpty() ? 
-                recipient.replace("@", "_otp_code_") : OTP_FILE_NAME);
+        return directoryWritable && writer.isRunning() && resolveFile(recipient) != null;
+    }
+    @Override
+    public boolean isReady() {
+        return directoryWritable && writer.isRunning();
+    }
+    @Override
+    public void shutdown() {
+        writer.close();
+    }
+    /**
+     * @return Счетчики фоновой записи
+     */
+    public Map<String, Object> getWriterStats() {
+        return writer.getStats();
+    }
+    /**
+     * Путь к файлу получателя; null, если путь выходит за пределы каталога
+     */
+    private Path resolveFile(String recipient) {
+        String fileName = recipient != null && !recipient.isEmpty()
+                ? recipient.replace("@", "_otp_code_") : OTP_FILE_NAME;
         try {
-            Path dirPath = Paths.get(OTP_FILES_DIR);
-            if (!Files.exists(dirPath)) {
-                try {
-                    Files.createDirectories(dirPath);
-                } catch (IOException e) {
-                    logger.warn("Cannot create otp_files directory", e);
-                    return false;
-                }
-            }
-            if (!Files.isWritable(dirPath)) {
-                logger.warn("Directory {} is not writable", OTP_FILES_DIR);
-                return false;
-            }
-            Path filePath = Paths.get(fileName);
-            if (Files.exists(filePath)) {
-                return Files.isWritable(filePath);
-            }
-            return true;
-        } catch (Exception e) {
-            logger.warn("Cannot check if file is writable: {}", fileName, e);
+            Path file = directory.resolve(fileName).normalize();
+            return file.startsWith(directory.normalize()) && !file.equals(directory.normalize()) ? file : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    private static boolean prepareDirectory(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            logger.warn("Cannot create OTP files directory {}", directory, e);
+            return false;
+        }
+        if (!Files.isWritable(directory)) {
+            logger.warn("Directory {} is not writable", directory);
             return false;
         }
+        return true;
+    }
+    private static FileAppendWriter.FsyncPolicy parseFsyncPolicy(String value) {
+        try {
+            return FileAppendWriter.FsyncPolicy.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown file delivery fsync policy '{}', using interval", value);
+            return FileAppendWriter.FsyncPolicy.INTERVAL;
+        }
     }
 } 
\ No newline at end of file
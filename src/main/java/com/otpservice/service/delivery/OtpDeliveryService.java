@@ -11,11 +11,28 @@ public interface OtpDeliveryService {
      * @return true если отправка успешна, false в противном случае
      */
     boolean sendOtp(String recipient, String code);
+    /**
+     * Отправляет OTP-код и сообщает, на чьей стороне ошибка, если отправка не удалась.
+     * По умолчанию любая неудача считается отказом канала
+     *
+     * @param recipient Получатель
+     * @param code OTP-код для отправки
+     * @return Результат отправки
+     */
+    default DeliveryResult deliver(String recipient, String code) {
+        return sendOtp(recipient, code) ? DeliveryResult.SENT : DeliveryResult.FAILED;
+    }
     /**
      * Подготавливает канал доставки (если необходимо)
      */
     default void initialize() {
     }
+    /**
+     * @return true, если канал подготовлен и может отправлять коды
+     */
+    default boolean isReady() {
+        return true;
+    }
     /**
      * Освобождает ресурсы канала доставки (если необходимо)
      */
@@ -1,17 +1,43 @@
 package com.otpservice.service.delivery;
+import com.otpservice.config.AppConfig;
 import com.otpservice.model.OtpCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 /**
- * Фабрика для создания сервисов доставки OTP кодов
+ * Фабрика для создания сервисов доставки OTP кодов.
+ * Каналы из delivery.channels создаются и подготавливаются параллельно при старте (startInitialization);
+ * готовые сервисы публикуются в неизменяемой карте, поэтому чтение не требует блокировок.
+ * При delivery.breaker.enabled=true каждый сервис оборачивается в CircuitBreakerDeliveryService.
  */
 public class OtpDeliveryServiceFactory {
     private static final Logger logger = LoggerFactory.getLogger(OtpDeliveryServiceFactory.class);
     private static OtpDeliveryServiceFactory instance;
-    private final Map<OtpCode.DeliveryChannel, OtpDeliveryService> deliveryServices = new HashMap<>();
+    private volatile Map<OtpCode.DeliveryChannel, OtpDeliveryService> deliveryServices =
+            Collections.unmodifiableMap(new EnumMap<>(OtpCode.DeliveryChannel.class));
+    private final Map<OtpCode.DeliveryChannel, CompletableFuture<OtpDeliveryService>> pendingServices =
+            new ConcurrentHashMap<>();
+    private final Set<OtpCode.DeliveryChannel> requiredChannels = AppConfig.getDeliveryChannels();
+    private final ScheduledExecutorService initExecutor;
+    private ScheduledFuture<?> retryTask;
     private OtpDeliveryServiceFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        initExecutor = Executors.newScheduledThreadPool(OtpCode.DeliveryChannel.values().length, runnable -> {
+            Thread thread = new Thread(runnable, "delivery-init-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     /**
      * Получить экземпляр фабрики
@@ -23,15 +49,160 @@ public class OtpDeliveryServiceFactory {
         return instance;
     }
     /**
-     * Получить сервис доставки по типу канала
+     * Запускает параллельную подготовку каналов из delivery.channels, не дожидаясь ее окончания.
+     * Каналы, которые не удалось подготовить, повторно подготавливаются каждые delivery.init.retry.seconds.
+     */
+    public synchronized void startInitialization() {
+        logger.info("Initializing delivery channels in parallel: {}", requiredChannels);
+        for (OtpCode.DeliveryChannel channel : requiredChannels) {
+            if (deliveryServices.containsKey(channel) || pendingServices.containsKey(channel)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            CompletableFuture<OtpDeliveryService> future = CompletableFuture.supplyAsync(() -> {
+                OtpDeliveryService service = createService(channel);
+                service.initialize();
+                return service;
+            }, initExecutor);
+            pendingServices.put(channel, future);
+            future.whenComplete((service, error) -> {
+                if (error != null) {
+                    logger.error("Failed to create {} delivery service", channel, error);
+                } else {
+                    publish(channel, service);
+                    logger.info("Delivery channel {} initialized in {} ms (ready: {})", channel,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), service.isReady());
+                }
+                pendingServices.remove(channel);
+            });
+        }
+        long retrySeconds = AppConfig.getDeliveryInitRetrySeconds();
+        if (retryTask == null && retrySeconds > 0) {
+            retryTask = initExecutor.scheduleWithFixedDelay(this::retryNotReadyChannels, retrySeconds, retrySeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+    /**
+     * Получить сервис доставки по типу канала.
+     * Канал, который еще подготавливается при старте, считается временно недоступным: поток запроса
+     * не ждет окончания подготовки. Если канал не был подготовлен, создает его.
      * 
      * @param channel Канал доставки
      * @return Сервис доставки OTP
+     * @throws DeliveryUnavailableException если канал еще подготавливается
      */
     public OtpDeliveryService getDeliveryService(OtpCode.DeliveryChannel channel) {
-        if (deliveryServices.containsKey(channel)) {
-            return deliveryServices.get(channel);
+        OtpDeliveryService service = deliveryServices.get(channel);
+        if (service != null) {
+            return service;
+        }
+        CompletableFuture<OtpDeliveryService> pending = pendingServices.get(channel);
+        if (pending != null) {
+            if (!pending.isDone()) {
+                throw new DeliveryUnavailableException(channel);
+            }
+            if (!pending.isCompletedExceptionally()) {
+                return pending.join();
+            }
+            logger.warn("Startup initialization of {} failed, creating it on demand", channel);
+        }
+        synchronized (this) {
+            service = deliveryServices.get(channel);
+            if (service == null) {
+                service = createService(channel);
+                service.initialize();
+                publish(channel, service);
+            }
+            return service;
+        }
+    }
+    /**
+     * Получить уже созданный сервис доставки (без обертки circuit breaker), не создавая новый
+     *
+     * @param channel Канал доставки
+     * @return Сервис доставки или null, если канал еще не использовался
+     */
+    public OtpDeliveryService getCreatedDeliveryService(OtpCode.DeliveryChannel channel) {
+        OtpDeliveryService service = deliveryServices.get(channel);
+        return service instanceof CircuitBreakerDeliveryService
+                ? ((CircuitBreakerDeliveryService) service).getDelegate() : service;
+    }
+    /**
+     * @return true, если все каналы из delivery.channels созданы и готовы к отправке
+     */
+    public boolean isReady() {
+        Map<OtpCode.DeliveryChannel, OtpDeliveryService> services = deliveryServices;
+        for (OtpCode.DeliveryChannel channel : requiredChannels) {
+            OtpDeliveryService service = services.get(channel);
+            if (service == null || !service.isReady()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * @return Состояние подготовки каждого канала из delivery.channels
+     */
+    public Map<String, Object> getReadiness() {
+        Map<OtpCode.DeliveryChannel, OtpDeliveryService> services = deliveryServices;
+        Map<String, Object> readiness = new LinkedHashMap<>();
+        for (OtpCode.DeliveryChannel channel : requiredChannels) {
+            OtpDeliveryService service = services.get(channel);
+            String state;
+            if (service != null) {
+                state = service.isReady() ? "READY" : "NOT_READY";
+            } else {
+                state = pendingServices.containsKey(channel) ? "INITIALIZING" : "FAILED";
+            }
+            readiness.put(channel.name(), state);
+        }
+        return readiness;
+    }
+    /**
+     * Проверяет, принимает ли канал вызовы (канал подготовлен и circuit breaker канала не разомкнут)
+     *
+     * @param channel Канал доставки
+     * @return true, если канал доступен или circuit breaker отключен; false, если канал еще подготавливается
+     */
+    public boolean isAvailable(OtpCode.DeliveryChannel channel) {
+        OtpDeliveryService service;
+        try {
+            service = getDeliveryService(channel);
+        } catch (DeliveryUnavailableException e) {
+            return false;
         }
+        return !(service instanceof CircuitBreakerDeliveryService)
+                || ((CircuitBreakerDeliveryService) service).isCallPermitted();
+    }
+    /**
+     * @return Состояние circuit breaker каждого созданного канала
+     */
+    public Map<String, Object> getBreakerStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<OtpCode.DeliveryChannel, OtpDeliveryService> entry : deliveryServices.entrySet()) {
+            if (entry.getValue() instanceof CircuitBreakerDeliveryService) {
+                stats.put(entry.getKey().name(), ((CircuitBreakerDeliveryService) entry.getValue()).getStats());
+            }
+        }
+        return stats;
+    }
+    /**
+     * Закрыть все сервисы доставки при завершении работы приложения
+     */
+    public synchronized void shutdownAll() {
+        logger.info("Shutting down all delivery services");
+        initExecutor.shutdownNow();
+        for (Map.Entry<OtpCode.DeliveryChannel, OtpDeliveryService> entry : deliveryServices.entrySet()) {
+            try {
+                logger.debug("Shutting down {} delivery service", entry.getKey());
+                entry.getValue().shutdown();
+            } catch (Exception e) {
+                logger.error("Error shutting down {} delivery service", entry.getKey(), e);
+            }
+        }
+        deliveryServices = Collections.unmodifiableMap(new EnumMap<>(OtpCode.DeliveryChannel.class));
+    }
+    private OtpDeliveryService createService(OtpCode.DeliveryChannel channel) {
         OtpDeliveryService service;
         switch (channel) {
             case SMS:
@@ -42,7 +213,6 @@ public class OtpDeliveryServiceFactory {
                 break;
             case TELEGRAM:
                 service = new TelegramOtpDeliveryService();
-                service.initialize();
                 break;
             case FILE:
                 service = new FileOtpDeliveryService();
@@ -51,23 +221,54 @@ public class OtpDeliveryServiceFactory {
                 logger.error("Unknown delivery channel: {}", channel);
                 throw new IllegalArgumentException("Unknown delivery channel: " + channel);
         }
-        deliveryServices.put(channel, service);
+        if (AppConfig.isDeliveryBreakerEnabled()) {
+            service = new CircuitBreakerDeliveryService(channel, service, AppConfig.getDeliveryBreakerWindowSize(),
+                    AppConfig.getDeliveryBreakerMinCalls(), AppConfig.getDeliveryBreakerFailureRateThreshold(),
+                    AppConfig.getDeliveryBreakerSlowCallMs(), AppConfig.getDeliveryBreakerSlowCallRateThreshold(),
+                    AppConfig.getDeliveryBreakerOpenMs(), AppConfig.getDeliveryBreakerHalfOpenCalls());
+        }
         logger.info("Created delivery service for channel: {}", channel);
         return service;
     }
     /**
-     * Закрыть все сервисы доставки при завершении работы приложения
+     * Публикует сервис канала: копирует карту и заменяет ссылку на неизменяемую копию
      */
-    public void shutdownAll() {
-        logger.info("Shutting down all delivery services");
-        for (Map.Entry<OtpCode.DeliveryChannel, OtpDeliveryService> entry : deliveryServices.entrySet()) {
+    private synchronized void publish(OtpCode.DeliveryChannel channel, OtpDeliveryService service) {
+        if (deliveryServices.containsKey(channel)) {
+            service.shutdown();
+            return;
+        }
+        Map<OtpCode.DeliveryChannel, OtpDeliveryService> services = new EnumMap<>(OtpCode.DeliveryChannel.class);
+        services.putAll(deliveryServices);
+        services.put(channel, service);
+        deliveryServices = Collections.unmodifiableMap(services);
+    }
+    private void retryNotReadyChannels() {
+        boolean allReady = true;
+        for (OtpCode.DeliveryChannel channel : requiredChannels) {
+            if (pendingServices.containsKey(channel)) {
+                allReady = false;
+                continue;
+            }
             try {
-                logger.debug("Shutting down {} delivery service", entry.getKey());
-                entry.getValue().shutdown();
+                OtpDeliveryService service = deliveryServices.get(channel);
+                if (service == null) {
+                    getDeliveryService(channel);
+                } else if (!service.isReady()) {
+                    logger.info("Retrying initialization of delivery channel {}", channel);
+                    service.initialize();
+                }
+                allReady &= deliveryServices.get(channel).isReady();
             } catch (Exception e) {
-                logger.error("Error shutting down {} delivery service", entry.getKey(), e);
+                allReady = false;
+                logger.error("Error initializing delivery channel {}", channel, e);
+            }
+        }
+        if (allReady) {
+            logger.info("All delivery channels are ready");
+            synchronized (this) {
+                retryTask.cancel(false);
             }
         }
-        deliveryServices.clear();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.otpservice.service.delivery;
+import com.otpservice.config.AppConfig;
+import com.otpservice.config.DatabaseConfig;
+import com.otpservice.dao.OtpCodeDao;
+import com.otpservice.dao.OtpOutboxDao;
+import com.otpservice.model.OtpCode;
+import com.otpservice.model.OtpOutboxEntry;
+import com.otpservice.service.ActiveOtpStore;
+import com.otpservice.service.BatchJobRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Доставка OTP кодов из таблицы otp_outbox.
+ * Рабочие потоки захватывают пачки записей через FOR UPDATE SKIP LOCKED и держат блокировку до фиксации
+ * результата, поэтому несколько узлов разбирают очередь параллельно, не отправляя один код дважды.
+ * Неудачные отправки повторяются с экспоненциальной задержкой со случайным разбросом (full jitter);
+ * отказ получателя (DeliveryResult.RECIPIENT_ERROR) не повторяется, и код сразу отзывается.
+ */
+public class OtpOutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OtpOutboxDispatcher.class);
+    private static final long PURGE_PERIOD_MINUTES = 60;
+    private static final int PURGE_AGE_HOURS = 24;
+    private static OtpOutboxDispatcher instance;
+    private final OtpOutboxDao outboxDao = new OtpOutboxDao();
+    private final OtpCodeDao otpCodeDao = new OtpCodeDao();
+    private final ActiveOtpStore activeOtpStore = ActiveOtpStore.getInstance();
+    private final int workers = AppConfig.getOutboxWorkers();
+    private final int batchSize = AppConfig.getOutboxBatchSize();
+    private final long pollIntervalMs = AppConfig.getOutboxPollIntervalMs();
+    private final int maxAttempts = AppConfig.getOutboxMaxAttempts();
+    private final long backoffBaseMs = AppConfig.getOutboxBackoffBaseMs();
+    private final long backoffMaxMs = AppConfig.getOutboxBackoffMaxMs();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder retriedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private ScheduledExecutorService scheduler;
+    private OtpOutboxDispatcher() {
+    }
+    /**
+     * Получить экземпляр диспетчера
+     */
+    public static synchronized OtpOutboxDispatcher getInstance() {
+        if (instance == null) {
+            instance = new OtpOutboxDispatcher();
+        }
+        return instance;
+    }
+    /**
+     * Запускает рабочие потоки и периодическую очистку завершенных записей
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(workers + 1, runnable -> {
+            Thread thread = new Thread(runnable, "otp-outbox-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            scheduler.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::purge, PURGE_PERIOD_MINUTES, PURGE_PERIOD_MINUTES, TimeUnit.MINUTES);
+        logger.info("Started OTP outbox dispatcher: {} workers, batch {}, max attempts {}", workers, batchSize, maxAttempts);
+    }
+    /**
+     * Останавливает рабочие потоки, дожидаясь текущей пачки
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+    /**
+     * @return Счетчики доставки и количество записей по статусам
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sent", sentCount.sum());
+        stats.put("retried", retriedCount.sum());
+        stats.put("failed", failedCount.sum());
+        stats.put("rows", outboxDao.countByStatus());
+        return stats;
+    }
+    /**
+     * Обрабатывает пачки, пока в очереди есть готовые записи
+     */
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted() && processBatch() == batchSize) {
+                logger.debug("Outbox batch was full, claiming the next one");
+            }
+        } catch (Exception e) {
+            logger.error("Error dispatching OTP outbox", e);
+        }
+    }
+    private int processBatch() throws SQLException {
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                List<OtpOutboxEntry> entries = outboxDao.claimDue(connection, now, batchSize);
+                for (OtpOutboxEntry entry : entries) {
+                    dispatch(connection, entry, now);
+                }
+                connection.commit();
+                return entries.size();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+    private void dispatch(Connection connection, OtpOutboxEntry entry, LocalDateTime now) throws SQLException {
+        if (entry.getCodeStatus() != OtpCode.Status.ACTIVE || !now.isBefore(entry.getExpiresAt())) {
+            outboxDao.complete(connection, entry.getId(), OtpOutboxDao.STATUS_FAILED, "OTP code is no longer active");
+            failedCount.increment();
+            return;
+        }
+        String error;
+        boolean retryable = true;
+        try {
+            OtpDeliveryService deliveryService = OtpDeliveryServiceFactory.getInstance()
+                    .getDeliveryService(entry.getDeliveryChannel());
+            DeliveryResult result = deliveryService.deliver(entry.getRecipient(), entry.getCode());
+            if (result == DeliveryResult.SENT) {
+                outboxDao.complete(connection, entry.getId(), OtpOutboxDao.STATUS_SENT, null);
+                sentCount.increment();
+                return;
+            }
+            retryable = result != DeliveryResult.RECIPIENT_ERROR;
+            error = retryable ? "Delivery service reported failure" : "Recipient was rejected";
+        } catch (RuntimeException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        int attempt = entry.getAttempts() + 1;
+        if (!retryable || attempt >= maxAttempts) {
+            logger.error("OTP outbox entry {} via {} failed after {} attempts: {}",
+                    entry.getId(), entry.getDeliveryChannel(), attempt, error);
+            outboxDao.complete(connection, entry.getId(), OtpOutboxDao.STATUS_FAILED, error);
+            otpCodeDao.updateStatusIfActive(entry.getOtpCodeId(), OtpCode.Status.EXPIRED);
+            activeOtpStore.removeById(entry.getOtpCodeId());
+            failedCount.increment();
+            return;
+        }
+        LocalDateTime nextAttemptAt = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffDelayMs(attempt)));
+        logger.warn("OTP outbox entry {} via {} failed (attempt {}), retrying at {}: {}",
+                entry.getId(), entry.getDeliveryChannel(), attempt, nextAttemptAt, error);
+        outboxDao.reschedule(connection, entry.getId(), nextAttemptAt, error);
+        retriedCount.increment();
+    }
+    /**
+     * Экспоненциальная задержка с полным случайным разбросом: случайное значение от 0 до min(max, base * 2^attempt)
+     */
+    private long backoffDelayMs(int attempt) {
+        long ceiling = backoffBaseMs << Math.min(attempt, 30);
+        if (ceiling <= 0 || ceiling > backoffMaxMs) {
+            ceiling = backoffMaxMs;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+    private void purge() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusHours(PURGE_AGE_HOURS);
+            BatchJobRunner.run("purgeOtpOutbox", limit -> outboxDao.deleteFinishedBefore(cutoff, limit));
+        } catch (Exception e) {
+            logger.error("Error purging OTP outbox", e);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,223 @@
+package com.otpservice.service.delivery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Пул подключенных SMTP-соединений.
+ * Соединение (TCP, STARTTLS, AUTH) открывается один раз и используется для нескольких писем;
+ * после заданного числа писем или при ошибке оно закрывается и открывается заново.
+ * Соединение, простоявшее дольше validateAfterIdleMs, перед использованием проверяется командой NOOP.
+ */
+class SmtpTransportPool {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+    private final Session session;
+    private final int maxMessagesPerConnection;
+    private final long validateAfterIdleMs;
+    private final long borrowTimeoutMs;
+    private final Semaphore permits;
+    private final BlockingQueue<PooledTransport> idle;
+    private final LongAdder connectCount = new LongAdder();
+    private final LongAdder reuseCount = new LongAdder();
+    private final LongAdder brokenCount = new LongAdder();
+    private volatile boolean closed;
+    SmtpTransportPool(Session session, int size, int maxMessagesPerConnection, long validateAfterIdleMs,
+                      long borrowTimeoutMs) {
+        this.session = session;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.validateAfterIdleMs = validateAfterIdleMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.permits = new Semaphore(size, true);
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+    /**
+     * Отправляет письмо через соединение из пула.
+     * Если ранее использованное соединение оказалось разорванным, письмо повторяется один раз на новом соединении.
+     *
+     * @param message Письмо (после saveChanges())
+     * @throws MessagingException при ошибке отправки или если свободное соединение не дождались
+     */
+    void send(MimeMessage message) throws MessagingException {
+        MessagingException error = sendBatch(List.of(message)).get(0);
+        if (error != null) {
+            throw error;
+        }
+    }
+    /**
+     * Отправляет несколько писем подряд через одно соединение из пула.
+     * Ошибка одного письма не прерывает отправку остальных.
+     *
+     * @param messages Письма (после saveChanges())
+     * @return Ошибки отправки в порядке писем (null - письмо отправлено)
+     * @throws MessagingException если свободное соединение не дождались
+     */
+    List<MessagingException> sendBatch(List<MimeMessage> messages) throws MessagingException {
+        return sendBatch(messages, index -> true);
+    }
+    /**
+     * Отправляет несколько писем подряд через одно соединение из пула, спрашивая перед каждым письмом,
+     * нужно ли его еще отправлять
+     *
+     * @param messages Письма (после saveChanges())
+     * @param beforeSend Вызывается с номером письма непосредственно перед его отправкой; false - письмо пропускается
+     * @return Ошибки отправки в порядке писем (null - письмо отправлено или пропущено)
+     * @throws MessagingException если свободное соединение не дождались
+     */
+    List<MessagingException> sendBatch(List<MimeMessage> messages, IntPredicate beforeSend) throws MessagingException {
+        PooledTransport pooled = borrow();
+        List<MessagingException> errors = new ArrayList<>(messages.size());
+        try {
+            for (int i = 0; i < messages.size(); i++) {
+                errors.add(beforeSend.test(i) ? sendWithReconnect(pooled, messages.get(i)) : null);
+            }
+        } catch (RuntimeException e) {
+            release(pooled, true);
+            throw e;
+        }
+        release(pooled, false);
+        return errors;
+    }
+    /**
+     * Открывает одно соединение и оставляет его в пуле
+     *
+     * @throws MessagingException если подключиться не удалось
+     */
+    void warmUp() throws MessagingException {
+        PooledTransport pooled = borrow();
+        try {
+            if (!pooled.connected) {
+                pooled.transport.connect();
+                pooled.connected = true;
+                pooled.messagesSent = 0;
+                connectCount.increment();
+            }
+        } catch (MessagingException | RuntimeException e) {
+            release(pooled, true);
+            throw e;
+        }
+        release(pooled, false);
+    }
+    /**
+     * Закрывает все свободные соединения; занятые закрываются при возврате
+     */
+    void close() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.poll()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+    /**
+     * @return Счетчики подключений и повторного использования соединений
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("idle", idle.size());
+        stats.put("available", permits.availablePermits());
+        stats.put("connects", connectCount.sum());
+        stats.put("reuses", reuseCount.sum());
+        stats.put("broken", brokenCount.sum());
+        return stats;
+    }
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for a free SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for a free SMTP connection", e);
+        }
+        PooledTransport pooled = idle.poll();
+        if (pooled == null) {
+            try {
+                return new PooledTransport(session.getTransport("smtp"));
+            } catch (MessagingException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        if (System.currentTimeMillis() - pooled.lastUsedAt > validateAfterIdleMs && !pooled.transport.isConnected()) {
+            logger.debug("Idle SMTP connection was closed by the server, reconnecting");
+            closeQuietly(pooled);
+        }
+        return pooled;
+    }
+    private MessagingException sendWithReconnect(PooledTransport pooled, MimeMessage message) {
+        boolean reused = pooled.connected;
+        try {
+            send(pooled, message);
+            return null;
+        } catch (SendFailedException e) {
+            return e;
+        } catch (MessagingException e) {
+            brokenCount.increment();
+            closeQuietly(pooled);
+            if (!reused) {
+                return e;
+            }
+            logger.warn("SMTP connection failed, retrying on a new connection: {}", e.getMessage());
+            try {
+                send(pooled, message);
+                return null;
+            } catch (MessagingException retryError) {
+                if (!(retryError instanceof SendFailedException)) {
+                    closeQuietly(pooled);
+                }
+                return retryError;
+            }
+        }
+    }
+    private void send(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        if (pooled.connected && pooled.messagesSent >= maxMessagesPerConnection) {
+            closeQuietly(pooled);
+        }
+        if (pooled.connected) {
+            reuseCount.increment();
+        } else {
+            pooled.transport.connect();
+            pooled.connected = true;
+            pooled.messagesSent = 0;
+            connectCount.increment();
+        }
+        pooled.transport.sendMessage(message, message.getAllRecipients());
+        pooled.messagesSent++;
+        pooled.lastUsedAt = System.currentTimeMillis();
+    }
+    private void release(PooledTransport pooled, boolean broken) {
+        if (broken || closed || pooled.messagesSent >= maxMessagesPerConnection || !idle.offer(pooled)) {
+            closeQuietly(pooled);
+        }
+        permits.release();
+    }
+    private static void closeQuietly(PooledTransport pooled) {
+        pooled.connected = false;
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing SMTP connection", e);
+        }
+    }
+    private static final class PooledTransport {
+        private final Transport transport;
+        private boolean connected;
+        private int messagesSent;
+        private long lastUsedAt = System.currentTimeMillis();
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+} 
\ No newline at end of file
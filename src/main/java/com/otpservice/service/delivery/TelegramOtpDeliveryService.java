@@ -2,6 +2,7 @@ package com.otpservice.service.delivery;
 import com.otpservice.config.AppConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
@@ -9,22 +10,44 @@ import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 /**
- * Сервис для отправки OTP-кодов через Telegram бота
+ * Сервис для отправки OTP-кодов через Telegram бота.
+ * Сообщения отправляются асинхронно (executeAsync) через TelegramSendQueue, которая соблюдает
+ * лимиты Bot API и повторяет сообщения после ответа 429. Отправка считается успешной только после ответа
+ * Bot API: сообщение, не отправленное за telegram.send.await.ms, снимается с очереди, и доставка завершается
+ * неудачей, чтобы код не оставался активным, outbox повторил доставку, а circuit breaker учел зависший канал.
  */
 public class TelegramOtpDeliveryService implements OtpDeliveryService {
     private static final Logger logger = LoggerFactory.getLogger(TelegramOtpDeliveryService.class);
     private static final String OTP_MESSAGE_TEMPLATE = "Ваш OTP-код: %s";
+    private static final long DEFAULT_AWAIT_MS = 3000;
     private OtpBot bot;
-    private boolean initialized = false;
+    private TelegramSendQueue sendQueue;
+    private volatile boolean initialized = false;
     @Override
-    public void initialize() {
+    public synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
         try {
             logger.info("Initializing Telegram OTP delivery service");
             TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            bot = new OtpBot(AppConfig.getTelegramBotToken(), AppConfig.getTelegramBotUsername());
+            DefaultBotOptions options = new DefaultBotOptions();
+            options.setBaseUrl(AppConfig.getTelegramBotApiUrl());
+            options.setMaxThreads(AppConfig.getTelegramSendThreads());
+            bot = new OtpBot(options, AppConfig.getTelegramBotToken(), AppConfig.getTelegramBotUsername());
             botsApi.registerBot(bot);
+            sendQueue = new TelegramSendQueue(bot::sendOtpMessageAsync,
+                    AppConfig.getTelegramRateGlobalPerSecond(), AppConfig.getTelegramRateGlobalBurst(),
+                    AppConfig.getTelegramRateChatPerSecond(), AppConfig.getTelegramRateChatBurst(),
+                    AppConfig.getTelegramSendQueueCapacity(), AppConfig.getTelegramSendMaxRetries());
+            sendQueue.start();
             initialized = true;
             logger.info("Telegram OTP delivery service initialized successfully");
         } catch (TelegramApiException e) {
@@ -34,26 +57,70 @@ public class TelegramOtpDeliveryService implements OtpDeliveryService {
     }
     @Override
     public boolean sendOtp(String recipient, String code) {
+        return deliver(recipient, code) == DeliveryResult.SENT;
+    }
+    @Override
+    public DeliveryResult deliver(String recipient, String code) {
         if (!initialized) {
             initialize();
             if (!initialized) {
                 logger.error("Cannot send OTP via Telegram: service not initialized");
-                return false;
+                return DeliveryResult.FAILED;
             }
         }
         logger.info("Sending OTP code via Telegram to chat ID: {}", recipient);
+        long chatId;
         try {
-            Long chatId = Long.parseLong(recipient);
-            String message = String.format(OTP_MESSAGE_TEMPLATE, code);
-            return bot.sendOtpMessage(chatId, message);
+            chatId = Long.parseLong(recipient);
         } catch (NumberFormatException e) {
             logger.error("Invalid Telegram chat ID: {}", recipient);
-            return false;
+            return DeliveryResult.RECIPIENT_ERROR;
+        }
+        ClaimableFuture<DeliveryResult> result = sendQueue.submit(chatId, String.format(OTP_MESSAGE_TEMPLATE, code));
+        long awaitMs = AppConfig.getTelegramSendAwaitMs();
+        if (awaitMs <= 0) {
+            awaitMs = DEFAULT_AWAIT_MS;
+        }
+        try {
+            try {
+                return result.get(awaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (result.cancel(false)) {
+                    logger.error("OTP message to chat ID {} was not sent within {} ms and was cancelled", chatId, awaitMs);
+                    return DeliveryResult.FAILED;
+                }
+            }
+            logger.warn("OTP message to chat ID {} is already being sent, waiting for the Bot API response", chatId);
+            return result.get(awaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            logger.error("Bot API did not answer for OTP message to chat ID {}, treating it as failed", chatId);
+            return DeliveryResult.FAILED;
+        } catch (ExecutionException e) {
+            logger.error("Error sending OTP message to chat ID: {}", chatId, e.getCause());
+            return DeliveryResult.FAILED;
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            return DeliveryResult.FAILED;
         }
     }
+    /**
+     * @return Состояние очереди отправки (пустая карта, если сервис не инициализирован)
+     */
+    public Map<String, Object> getSendQueueStats() {
+        return sendQueue != null ? sendQueue.getStats() : Map.of();
+    }
+    @Override
+    public boolean isReady() {
+        return initialized;
+    }
     @Override
     public void shutdown() {
         logger.info("Shutting down Telegram OTP delivery service");
+        if (sendQueue != null) {
+            sendQueue.stop();
+        }
         if (bot != null) {
             bot.onClosing();
         }
@@ -76,8 +143,8 @@ public class TelegramOtpDeliveryService implements OtpDeliveryService {
         private final String botToken;
         private final String botUsername;
         private final ConcurrentHashMap<Long, String> users = new ConcurrentHashMap<>();
-        public OtpBot(String botToken, String botUsername) {
-            super(botToken);
+        public OtpBot(DefaultBotOptions options, String botToken, String botUsername) {
+            super(options, botToken);
             this.botToken = botToken;
             this.botUsername = botUsername;
         }
@@ -108,17 +175,18 @@ public class TelegramOtpDeliveryService implements OtpDeliveryService {
                 }
             }
         }
-        public boolean sendOtpMessage(Long chatId, String message) {
+        public CompletableFuture<Message> sendOtpMessageAsync(long chatId, String message) {
+            SendMessage sendMessage = new SendMessage();
+            sendMessage.setChatId(Long.toString(chatId));
+            sendMessage.setText(message);
             try {
-                SendMessage sendMessage = new SendMessage();
-                sendMessage.setChatId(chatId.toString());
-                sendMessage.setText(message);
-                execute(sendMessage);
-                botLogger.info("OTP message sent to chat ID: {}", chatId);
-                return true;
+                return executeAsync(sendMessage).whenComplete((sent, error) -> {
+                    if (error == null) {
+                        botLogger.info("OTP message sent to chat ID: {}", chatId);
+                    }
+                });
             } catch (TelegramApiException e) {
-                botLogger.error("Error sending OTP message to chat ID: {}", chatId, e);
-                return false;
+                return CompletableFuture.failedFuture(e);
             }
         }
         private void sendMessage(Long chatId, String text) {
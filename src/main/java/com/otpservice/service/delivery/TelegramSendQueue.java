@@ -0,0 +1,343 @@
+package com.otpservice.service.delivery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * Очередь отправки сообщений Telegram с учетом лимитов Bot API.
+ * Общий token bucket ограничивает число сообщений в секунду для всего бота, а отдельный bucket на чат -
+ * для каждого получателя. Сообщения сверх лимита ждут в очереди чата, а ответ 429 откладывает чат
+ * на retry_after секунд. Сообщения одного чата отправляются по порядку и не более одного одновременно.
+ * Перед отправкой сообщение захватывается (ClaimableFuture.claim()), поэтому сообщение, которое вызывающий код
+ * отменил, пока оно ждало в очереди, не отправляется.
+ */
+class TelegramSendQueue {
+    private static final Logger logger = LoggerFactory.getLogger(TelegramSendQueue.class);
+    private static final long POLL_MS = 100;
+    private static final long CHAT_IDLE_EVICT_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int BAD_REQUEST = 400;
+    private static final int FORBIDDEN = 403;
+    private static final int TOO_MANY_REQUESTS = 429;
+    /**
+     * Асинхронная отправка одного сообщения
+     */
+    interface Sender {
+        CompletableFuture<?> send(long chatId, String text);
+    }
+    private final Sender sender;
+    private final TokenBucket globalBucket;
+    private final double chatRatePerSecond;
+    private final int chatBurst;
+    private final int capacity;
+    private final int maxRetries;
+    private final Map<Long, ChatQueue> chats = new ConcurrentHashMap<>();
+    private final DelayQueue<ChatQueue> readyChats = new DelayQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder throttledCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+    private volatile boolean running;
+    private Thread dispatcher;
+    TelegramSendQueue(Sender sender, double globalRatePerSecond, int globalBurst, double chatRatePerSecond,
+                      int chatBurst, int capacity, int maxRetries) {
+        this.sender = sender;
+        this.globalBucket = new TokenBucket(globalRatePerSecond, globalBurst);
+        this.chatRatePerSecond = chatRatePerSecond;
+        this.chatBurst = chatBurst;
+        this.capacity = capacity;
+        this.maxRetries = maxRetries;
+    }
+    /**
+     * Запускает поток-диспетчер
+     */
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "telegram-send-queue");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+    /**
+     * Останавливает диспетчер; сообщения, оставшиеся в очереди, завершаются неудачей
+     */
+    synchronized void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            try {
+                dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dispatcher = null;
+        }
+        for (ChatQueue chat : chats.values()) {
+            synchronized (chat) {
+                PendingMessage pending;
+                while ((pending = chat.pending.poll()) != null) {
+                    finish(pending, DeliveryResult.FAILED);
+                }
+            }
+        }
+    }
+    /**
+     * Ставит сообщение в очередь чата
+     *
+     * @param chatId ID чата
+     * @param text Текст сообщения
+     * @return Future с результатом отправки: FAILED, если очередь переполнена или Bot API недоступен,
+     *         RECIPIENT_ERROR, если Bot API отклонил чат (400 chat not found, 403 бот заблокирован);
+     *         cancel() снимает сообщение с отправки и возвращает false, если сообщение уже отправляется
+     */
+    ClaimableFuture<DeliveryResult> submit(long chatId, String text) {
+        PendingMessage message = new PendingMessage(text);
+        if (!running || queued.incrementAndGet() > capacity) {
+            if (running) {
+                queued.decrementAndGet();
+            }
+            rejectedCount.increment();
+            message.result.complete(DeliveryResult.FAILED);
+            return message.result;
+        }
+        while (true) {
+            ChatQueue chat = chats.computeIfAbsent(chatId, id -> new ChatQueue(id, new TokenBucket(chatRatePerSecond, chatBurst)));
+            synchronized (chat) {
+                if (chat.evicted) {
+                    continue;
+                }
+                chat.pending.add(message);
+                if (!chat.scheduled) {
+                    schedule(chat, System.nanoTime());
+                }
+            }
+            return message.result;
+        }
+    }
+    /**
+     * @return Размер очереди и счетчики отправки
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queued.get());
+        stats.put("chats", chats.size());
+        stats.put("sent", sentCount.sum());
+        stats.put("throttled", throttledCount.sum());
+        stats.put("failed", failedCount.sum());
+        stats.put("rejected", rejectedCount.sum());
+        stats.put("cancelled", cancelledCount.sum());
+        return stats;
+    }
+    private void dispatchLoop() {
+        long lastEviction = System.nanoTime();
+        while (running) {
+            try {
+                ChatQueue chat = readyChats.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                long now = System.nanoTime();
+                if (now - lastEviction > CHAT_IDLE_EVICT_NANOS) {
+                    evictIdleChats(now);
+                    lastEviction = now;
+                }
+                if (chat == null) {
+                    continue;
+                }
+                long wait;
+                while ((wait = globalBucket.nanosUntilToken(System.nanoTime())) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                dispatch(chat);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Error dispatching Telegram messages", e);
+            }
+        }
+    }
+    private void dispatch(ChatQueue chat) {
+        PendingMessage message;
+        synchronized (chat) {
+            message = claimNext(chat);
+            if (message == null) {
+                chat.scheduled = false;
+                return;
+            }
+            long now = System.nanoTime();
+            globalBucket.take(now);
+            chat.bucket.take(now);
+        }
+        CompletableFuture<?> sending;
+        try {
+            sending = sender.send(chat.chatId, message.text);
+        } catch (RuntimeException e) {
+            sending = CompletableFuture.failedFuture(e);
+        }
+        sending.whenComplete((result, error) -> onComplete(chat, message, error));
+    }
+    /**
+     * Захватывает первое сообщение чата для отправки, выбрасывая из очереди отмененные
+     */
+    private PendingMessage claimNext(ChatQueue chat) {
+        PendingMessage message;
+        while ((message = chat.pending.peek()) != null && !message.result.claim()) {
+            chat.pending.poll();
+            queued.decrementAndGet();
+            cancelledCount.increment();
+        }
+        return message;
+    }
+    private void onComplete(ChatQueue chat, PendingMessage message, Throwable error) {
+        long now = System.nanoTime();
+        synchronized (chat) {
+            if (error == null) {
+                chat.pending.poll();
+                sentCount.increment();
+                finish(message, DeliveryResult.SENT);
+            } else {
+                Integer retryAfter = retryAfterSeconds(error);
+                if (retryAfter != null && message.attempts < maxRetries) {
+                    message.attempts++;
+                    message.result.release();
+                    chat.blockedUntil = now + TimeUnit.SECONDS.toNanos(retryAfter);
+                    throttledCount.increment();
+                    logger.warn("Telegram throttled chat {}, retrying in {} s", chat.chatId, retryAfter);
+                } else {
+                    chat.pending.poll();
+                    failedCount.increment();
+                    logger.error("Error sending Telegram message to chat ID: {}", chat.chatId, unwrap(error));
+                    finish(message, isRecipientError(error) ? DeliveryResult.RECIPIENT_ERROR : DeliveryResult.FAILED);
+                }
+            }
+            if (chat.pending.isEmpty()) {
+                chat.scheduled = false;
+            } else {
+                schedule(chat, now);
+            }
+        }
+    }
+    private void schedule(ChatQueue chat, long now) {
+        chat.scheduled = true;
+        chat.readyAt = Math.max(now + chat.bucket.nanosUntilToken(now), chat.blockedUntil);
+        readyChats.add(chat);
+    }
+    private void finish(PendingMessage message, DeliveryResult result) {
+        queued.decrementAndGet();
+        message.result.complete(result);
+    }
+    private void evictIdleChats(long now) {
+        Iterator<ChatQueue> iterator = chats.values().iterator();
+        while (iterator.hasNext()) {
+            ChatQueue chat = iterator.next();
+            synchronized (chat) {
+                if (!chat.scheduled && now - chat.bucket.lastTakenAt() > CHAT_IDLE_EVICT_NANOS) {
+                    chat.evicted = true;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+    private static Integer retryAfterSeconds(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof TelegramApiRequestException) {
+            TelegramApiRequestException requestError = (TelegramApiRequestException) cause;
+            if (requestError.getErrorCode() != null && requestError.getErrorCode() == TOO_MANY_REQUESTS) {
+                Integer retryAfter = requestError.getParameters() != null
+                        ? requestError.getParameters().getRetryAfter() : null;
+                return retryAfter != null ? retryAfter : 1;
+            }
+        }
+        return null;
+    }
+    private static boolean isRecipientError(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof TelegramApiRequestException) {
+            Integer errorCode = ((TelegramApiRequestException) cause).getErrorCode();
+            return errorCode != null && (errorCode == BAD_REQUEST || errorCode == FORBIDDEN);
+        }
+        return false;
+    }
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    /**
+     * Token bucket: rate токенов в секунду, не больше burst накопленных токенов
+     */
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double burst;
+        private double tokens;
+        private long lastRefillAt = System.nanoTime();
+        private long lastTakenAt = lastRefillAt;
+        TokenBucket(double ratePerSecond, int burst) {
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = Math.max(burst, 1);
+            this.tokens = this.burst;
+        }
+        synchronized long nanosUntilToken(long now) {
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+        synchronized void take(long now) {
+            refill(now);
+            tokens -= 1;
+            lastTakenAt = now;
+        }
+        synchronized long lastTakenAt() {
+            return lastTakenAt;
+        }
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefillAt) * tokensPerNano);
+            lastRefillAt = now;
+        }
+    }
+    /**
+     * Очередь сообщений одного чата. Поля изменяются под блокировкой объекта.
+     */
+    private static final class ChatQueue implements Delayed {
+        private final long chatId;
+        private final TokenBucket bucket;
+        private final ArrayDeque<PendingMessage> pending = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean evicted;
+        private long blockedUntil = Long.MIN_VALUE;
+        private volatile long readyAt;
+        ChatQueue(long chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAt, ((ChatQueue) other).readyAt);
+        }
+    }
+    private static final class PendingMessage {
+        private final String text;
+        private final ClaimableFuture<DeliveryResult> result = new ClaimableFuture<>();
+        private int attempts;
+        PendingMessage(String text) {
+            this.text = text;
+        }
+    }
+} 
\ No newline at end of file
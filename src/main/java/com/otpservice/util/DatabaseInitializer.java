@@ -1,4 +1,5 @@
 package com.otpservice.util;
+import com.otpservice.config.AppConfig;
 import com.otpservice.config.DatabaseConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +10,8 @@ import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 /**
  * Утилитарный класс для инициализации базы данных
@@ -16,23 +19,32 @@ import java.util.stream.Collectors;
 public class DatabaseInitializer {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseInitializer.class);
     private static final String INIT_SQL_FILE = "db/init.sql";
+    private static final String PARTITIONED_OTP_CODES_SQL_FILE = "db/otp_codes_partitioned.sql";
     /**
-     * Инициализирует базу данных, выполняя SQL-скрипт
+     * Инициализирует базу данных, выполняя SQL-скрипт.
+     * При включенном секционировании сначала создается секционированная таблица otp_codes
      * 
      * @return true, если инициализация прошла успешно, false в противном случае
      */
     public static boolean initializeDatabase() {
         logger.info("Initializing database...");
+        List<String> scriptFiles = new ArrayList<>();
+        if (AppConfig.isOtpPartitioningEnabled()) {
+            scriptFiles.add(PARTITIONED_OTP_CODES_SQL_FILE);
+        }
+        scriptFiles.add(INIT_SQL_FILE);
         try (Connection connection = DatabaseConfig.getConnection()) {
-            String sqlScript = readSqlScript();
-            if (sqlScript == null || sqlScript.trim().isEmpty()) {
-                logger.error("SQL script is empty or not found");
-                return false;
-            }
             try (Statement statement = connection.createStatement()) {
-                for (String sql : sqlScript.split(";")) {
-                    if (!sql.trim().isEmpty()) {
-                        statement.execute(sql);
+                for (String scriptFile : scriptFiles) {
+                    String sqlScript = readSqlScript(scriptFile);
+                    if (sqlScript == null || sqlScript.trim().isEmpty()) {
+                        logger.error("SQL script is empty or not found: {}", scriptFile);
+                        return false;
+                    }
+                    for (String sql : sqlScript.split(";")) {
+                        if (!sql.trim().isEmpty()) {
+                            statement.execute(sql);
+                        }
                     }
                 }
                 logger.info("Database initialized successfully");
@@ -48,12 +60,13 @@ public class DatabaseInitializer {
     /**
      * Читает SQL-скрипт из ресурсов
      * 
+     * @param scriptFile Путь к скрипту в ресурсах
      * @return Содержимое SQL-скрипта или null, если скрипт не найден
      */
-    private static String readSqlScript() {
-        try (InputStream inputStream = DatabaseInitializer.class.getClassLoader().getResourceAsStream(INIT_SQL_FILE)) {
+    private static String readSqlScript(String scriptFile) {
+        try (InputStream inputStream = DatabaseInitializer.class.getClassLoader().getResourceAsStream(scriptFile)) {
             if (inputStream == null) {
-                logger.error("SQL script file not found: {}", INIT_SQL_FILE);
+                logger.error("SQL script file not found: {}", scriptFile);
                 return null;
             }
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
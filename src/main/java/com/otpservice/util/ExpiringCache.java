@@ -0,0 +1,141 @@
+package com.otpservice.util;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+/**
+ * Потокобезопасный кэш с ограничением размера и сроком жизни каждой записи.
+ * Просроченные записи удаляются при обращении и при очистке переполненного кэша.
+ *
+ * @param <K> Тип ключа
+ * @param <V> Тип значения
+ */
+public class ExpiringCache<K, V> {
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    /**
+     * @param maxSize Максимальное количество записей
+     */
+    public ExpiringCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+    /**
+     * Возвращает значение, если запись существует и не просрочена
+     *
+     * @param key Ключ
+     * @return Значение или null
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, entry)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+    /**
+     * Сохраняет значение до указанного момента времени
+     *
+     * @param key Ключ
+     * @param value Значение
+     * @param expiresAtMillis Момент истечения (epoch millis)
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+    /**
+     * Удаляет запись
+     *
+     * @param key Ключ
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+    /**
+     * Удаляет все записи
+     */
+    public void clear() {
+        entries.clear();
+    }
+    public int size() {
+        return entries.size();
+    }
+    /**
+     * @return Счетчики попаданий, промахов и вытеснений
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("expirations", expirations.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+    /**
+     * Освобождает место: сначала удаляет просроченные записи, затем произвольные,
+     * пока размер не опустится ниже 90% лимита
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getValue().isExpired(now)) {
+                    iterator.remove();
+                    expirations.increment();
+                }
+            }
+            int target = (int) (maxSize * EVICTION_TARGET_RATIO);
+            iterator = entries.entrySet().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtMillis;
+        Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+} 
\ No newline at end of file
@@ -1,26 +1,103 @@
 package com.otpservice.util;
 import com.otpservice.config.AppConfig;
+import com.otpservice.model.AuthPrincipal;
 import com.otpservice.model.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 public class JwtUtil {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
     private static final String SECRET_KEY = AppConfig.getJwtSecret();
     private static final long JWT_EXPIRATION_TIME = AppConfig.getJwtExpiration();
+    private static final String USER_ID_CLAIM = "uid";
+    private static final Key SIGNING_KEY = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SIGNING_KEY)
+            .build();
+    private static final boolean TOKEN_CACHE_ENABLED = AppConfig.isJwtCacheEnabled();
+    private static final ExpiringCache<ByteBuffer, AuthPrincipal> TOKEN_CACHE =
+            new ExpiringCache<>(AppConfig.getJwtCacheMaxSize());
+    private static final ThreadLocal<MessageDigest> TOKEN_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
     private static Key getSigningKey() {
-        byte[] keyBytes = SECRET_KEY.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return SIGNING_KEY;
+    }
+    /**
+     * Проверяет токен (подпись и срок действия) за один разбор и строит из него AuthPrincipal.
+     * Результат проверки кэшируется по SHA-256 от токена до момента его истечения,
+     * поэтому повторные запросы с тем же токеном не проверяют подпись.
+     *
+     * @param token JWT-токен
+     * @return Данные пользователя или пустой Optional, если токен неверен или истек
+     */
+    public static Optional<AuthPrincipal> authenticate(String token) {
+        ByteBuffer cacheKey = null;
+        if (TOKEN_CACHE_ENABLED && token != null) {
+            cacheKey = digest(token);
+            AuthPrincipal cached = TOKEN_CACHE.get(cacheKey);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        try {
+            Claims claims = extractAllClaims(token);
+            AuthPrincipal principal = new AuthPrincipal(
+                    claims.get(USER_ID_CLAIM, Long.class),
+                    claims.getSubject(),
+                    parseRole(claims.get("role", String.class)),
+                    claims.getExpiration()
+            );
+            if (cacheKey != null && principal.getExpiresAt() != null) {
+                TOKEN_CACHE.put(cacheKey, principal, principal.getExpiresAt().getTime());
+            }
+            return Optional.of(principal);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.warn("Invalid JWT Token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+    /**
+     * @return Статистика кэша проверенных токенов
+     */
+    public static Map<String, Object> getTokenCacheStats() {
+        Map<String, Object> stats = TOKEN_CACHE.getStats();
+        stats.put("enabled", TOKEN_CACHE_ENABLED);
+        return stats;
+    }
+    private static ByteBuffer digest(String token) {
+        MessageDigest digest = TOKEN_DIGEST.get();
+        digest.reset();
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+    private static User.Role parseRole(String role) {
+        if (role == null) {
+            return null;
+        }
+        try {
+            return User.Role.valueOf(role);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
     public static String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -37,11 +114,7 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
     private static Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return PARSER.parseClaimsJws(token).getBody();
     }
     private static Boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date());
@@ -49,6 +122,7 @@ public class JwtUtil {
     public static String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", user.getRole().name());
+        claims.put(USER_ID_CLAIM, user.getId());
         return createToken(claims, user.getUsername());
     }
     private static String createToken(Map<String, Object> claims, String subject) {
@@ -15,6 +15,9 @@ CREATE TABLE IF NOT EXISTS otp_config (
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Версия конфигурации для обнаружения изменений другими узлами
+ALTER TABLE otp_config ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 1;
+
 -- Вставка дефолтной конфигурации, если таблица пуста
 INSERT INTO otp_config (id, length, expiration_time_ms) 
 VALUES (1, 6, 300000)
@@ -38,4 +41,31 @@ CREATE INDEX IF NOT EXISTS idx_otp_codes_user_status ON otp_codes (user_id, stat
 CREATE INDEX IF NOT EXISTS idx_otp_codes_expires_at ON otp_codes (expires_at) WHERE status = 'ACTIVE';
 
 -- Индекс для поиска по operation_id
-CREATE INDEX IF NOT EXISTS idx_otp_codes_operation_id ON otp_codes (operation_id); 
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_otp_codes_operation_id ON otp_codes (operation_id);
+
+-- Очередь доставки OTP-кодов (delivery.mode=outbox), пишется в одной транзакции с кодом.
+-- Внешнего ключа на otp_codes нет: при секционировании первичный ключ otp_codes составной
+CREATE TABLE IF NOT EXISTS otp_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    otp_code_id BIGINT NOT NULL,
+    delivery_channel VARCHAR(20) NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('PENDING', 'SENT', 'FAILED')),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Индекс для выборки готовых к отправке записей
+CREATE INDEX IF NOT EXISTS idx_otp_outbox_pending ON otp_outbox (next_attempt_at) WHERE status = 'PENDING';
+
+-- Использованные коды в режиме otp.mode=totp: ключ - хэш (пользователь, операция, шаг времени).
+-- Записи нужны только до истечения окна проверки и удаляются фоновой очисткой
+CREATE TABLE IF NOT EXISTS otp_replay (
+    replay_key VARCHAR(64) PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL
+);
+
+-- Индекс для удаления истекших записей
+CREATE INDEX IF NOT EXISTS idx_otp_replay_expires_at ON otp_replay (expires_at); 
\ No newline at end of file
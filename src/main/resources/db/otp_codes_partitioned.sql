@@ -0,0 +1,22 @@
+-- Секционированная по дням таблица OTP-кодов (db.otp.partitioning.enabled=true).
+-- Выполняется до init.sql, поэтому CREATE TABLE IF NOT EXISTS otp_codes в init.sql ничего не делает,
+-- а индексы из init.sql создаются на секционированной таблице и наследуются секциями.
+-- Уникальные ограничения секционированной таблицы обязаны включать ключ секционирования,
+-- поэтому ограничение на operation_id действует вместе с created_at.
+-- Внешний ключ на users не создается (таблица users еще не существует); коды пользователя
+-- удаляются приложением перед удалением пользователя.
+CREATE TABLE IF NOT EXISTS otp_codes (
+    id SERIAL,
+    user_id INTEGER NOT NULL,
+    operation_id VARCHAR(50),
+    code VARCHAR(10) NOT NULL,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('ACTIVE', 'EXPIRED', 'USED')),
+    delivery_channel VARCHAR(20) NOT NULL CHECK (delivery_channel IN ('SMS', 'EMAIL', 'TELEGRAM', 'FILE')),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, created_at),
+    CONSTRAINT unique_active_operation_id UNIQUE (operation_id, status, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Секция для строк вне заранее созданных дневных секций
+CREATE TABLE IF NOT EXISTS otp_codes_default PARTITION OF otp_codes DEFAULT; 
\ No newline at end of file